@@ -5,10 +5,33 @@
   (:import (com.sun.management OperatingSystemMXBean)
            [java.lang.management ManagementFactory]
            [java.io File]
-           [java.util.concurrent TimeUnit]))
+           [java.nio.file Files Path]
+           [java.util.concurrent Executors ThreadFactory TimeUnit]
+           [org.example.gui_repl.common HashedWheelTimer HashedWheelTimer$Timeout]))
 
 (def current-system-limits (atom nil))                      ; State atom for the current system limits
 
+(def sample-interval-ms 2000)                               ; How often the sampler reads CPU, memory and disk
+(def sample-history 60)                                     ; Samples kept, so 2 minutes at the default interval
+(def ewma-alpha 0.3)                                        ; Weight of the newest sample, lower = smoother
+
+(def load-sampler                                           ; Rolling time series + the snapshot derived from it
+  (agent {:samples clojure.lang.PersistentQueue/EMPTY
+          :snapshot nil}
+         :error-mode :continue
+         :error-handler (fn [_ e] (println "[ERROR] Load sample failed:" (.getMessage ^Throwable e)))))
+
+(defonce ^:private sampler-executor                         ; Runs the agent actions, daemon so a running sampler never keeps the JVM alive
+  (Executors/newSingleThreadExecutor
+    (reify ThreadFactory
+      (newThread [_ runnable]
+        (doto (Thread. ^Runnable runnable "system-load-sampler")
+          (.setDaemon true))))))
+
+(def ^:private sampler-task (atom nil))                     ; Timeout of the sampler's tick on the shared timer wheel, nil when stopped
+
+(declare get-current-system-load get-load-snapshot)         ; Used by calculate-adaptive-limits, defined further down
+
 ; Core System Detection
 
 (defn get-runtime-info
@@ -29,6 +52,16 @@
 ; we call a static method that always returns a valid Runtime instance
 ; unless there is a catastrophic JVM failure and at that point there is nothing got be done
 
+(defn- read-mem-available
+  "MemAvailable from /proc/meminfo in bytes, nil where there is no such file"
+  []
+  (try
+    (some (fn [line]
+            (when-let [[_ kb] (re-matches #"MemAvailable:\s+(\d+) kB" line)]
+              (* 1024 (Long/parseLong kb))))
+          (Files/readAllLines (Path/of "/proc/meminfo" (make-array String 0))))
+    (catch Exception _ nil)))
+
 (defn get-system-memory-info
   "Get detailed system memory information beyond JVM heap"
   []
@@ -37,7 +70,8 @@
      (if (instance? OperatingSystemMXBean os-mxbean)
      (let [bean (cast OperatingSystemMXBean os-mxbean)
            total (.getTotalPhysicalMemorySize bean)
-           free (.getFreePhysicalMemorySize bean)
+           free (or (read-mem-available)                   ; Free memory alone counts the page cache as used, so Linux always looks full
+                    (.getFreePhysicalMemorySize bean))
            pressure (if (pos? total) (- 1.0 (/ (double free) total)) 0.0)]
     {:total-system-memory total
      :available-memory free
@@ -133,7 +167,7 @@
 (defn calculate-adaptive-limits
   "Calculate and adjust values based on system limits and current system load"
   [base-limits]                                             ; Map from 'calculate-default-session-limits'
-  (let [current-load (get-current-system-load)
+  (let [current-load (get-load-snapshot)                    ; Smoothed, so one noisy reading doesn't halve the limits
         scale-factor (calculate-load-factor current-load)]
     {:max-sessions (* (get base-limits :max-sessions) scale-factor)
      :memory-per-session (* (get base-limits :memory-per-session) scale-factor)
@@ -148,10 +182,11 @@
      (if (instance? OperatingSystemMXBean os-mxbean)
       (let [bean (cast OperatingSystemMXBean os-mxbean)
             used-cpu-percentage (let [cpu (.getSystemCpuLoad bean)] (if (>= cpu 0) cpu 0.0))
-            free-memory (.getFreePhysicalMemorySize bean)
+            free-memory (or (read-mem-available)            ; Same as get-system-memory-info, MemFree would read as almost full
+                            (.getFreePhysicalMemorySize bean))
             total-memory (.getTotalPhysicalMemorySize bean)
             used-memory (- total-memory free-memory)
-            used-memory-percentage (double (/ used-memory total-memory))
+            used-memory-percentage (if (pos? total-memory) (double (/ used-memory total-memory)) 0.0)
             ]
       {:cpu-usage used-cpu-percentage
        :memory-usage used-memory-percentage})
@@ -161,16 +196,90 @@
       {:cpu-usage 0
        :memory-usage 0})))
 
+; Load Sampling
+; The MXBean is only read by the sampler, everything else reads the latest snapshot
+
+(defn get-disk-usage
+  "Get the used fraction of the session storage disk"
+  []
+  (let [{:keys [total-space usable-space]} (get-disk-space-info)]
+    (if (pos? total-space)
+      (- 1.0 (/ (double usable-space) total-space))
+      0.0)))
+
+(defn ewma
+  "Exponentially weighted moving average step, the first value starts the average"
+  [previous value]
+  (if previous
+    (+ (* ewma-alpha value) (* (- 1.0 ewma-alpha) previous))
+    value))
+
+(defn percentile
+  "Nearest-rank percentile (p between 0 and 1) of a collection of numbers, nil when it's empty"
+  [values p]
+  (when (seq values)
+    (let [sorted (vec (sort values))
+          rank (int (Math/ceil (* p (count sorted))))]
+      (nth sorted (max 0 (dec rank))))))
+
+(defn summarize-samples
+  "Build a load snapshot from the sample series, the smoothed values go under the usual keys"
+  [samples previous-snapshot]
+  (let [latest (last samples)
+        series (fn [k] (map k samples))]
+    {:cpu-usage (ewma (:cpu-usage previous-snapshot) (:cpu-usage latest))
+     :memory-usage (ewma (:memory-usage previous-snapshot) (:memory-usage latest))
+     :disk-usage (ewma (:disk-usage previous-snapshot) (:disk-usage latest))
+     :free-space (:free-space latest)
+     :cpu-p50 (percentile (series :cpu-usage) 0.5)
+     :cpu-p95 (percentile (series :cpu-usage) 0.95)
+     :memory-p50 (percentile (series :memory-usage) 0.5)
+     :memory-p95 (percentile (series :memory-usage) 0.95)
+     :disk-p95 (percentile (series :disk-usage) 0.95)
+     :sample-count (count samples)
+     :sampled-at (:timestamp latest)}))
+
+(defn take-load-sample
+  "Read CPU, memory and disk once"
+  []
+  (let [load (get-current-system-load)
+        disk (get-disk-space-info)]
+    {:timestamp (utils/generate-timestamp)
+     :cpu-usage (double (:cpu-usage load))
+     :memory-usage (double (:memory-usage load))
+     :disk-usage (get-disk-usage)
+     :free-space (:usable-space disk)}))
+
+(defn record-sample
+  "Agent action: append a sample, drop the oldest past sample-history, refresh the snapshot"
+  [{:keys [samples snapshot]} sample]
+  (let [samples (cond-> (conj samples sample)
+                  (>= (count samples) sample-history) pop)]
+    {:samples samples
+     :snapshot (summarize-samples samples snapshot)}))
+
+(defn get-load-snapshot
+  "Latest smoothed load (EWMA + percentiles), or an instant reading if the sampler hasn't run yet"
+  []
+  (or (:snapshot @load-sampler)
+      (get-current-system-load)))
+
+(defn get-load-history
+  "The raw sample series, oldest first"
+  []
+  (vec (:samples @load-sampler)))
+
 ; Limit Enforcement
 
 (defn can-create-session?
   "Check if a new session can be created within current limits"
-  [current-session-count system-limits]                     ; current-session-count is an int, system-limits likely refers to the atom
+  ([current-session-count] (can-create-session? current-session-count current-system-limits))
+  ([current-session-count system-limits]                    ; current-session-count is an int, system-limits likely refers to the atom
   (let [limits @system-limits
-        current-load (get-current-system-load)]
+        current-load (get-load-snapshot)]                   ; Cached, admission never touches the MXBean
     (and (< current-session-count (get limits :max-sessions 0))
          (< (get current-load :cpu-usage 0) 0.9)
-         (< (get current-load :memory-usage 0) 0.9))))                    ; Return true only if all conditions are satisfied
+         (< (get current-load :memory-usage 0) 0.9)))))                   ; Return true only if all conditions are satisfied
 
 (defn suggest-session-config
   "Suggest an optimal config for a new session"             ; Returns map with suggested-memory, timeout, priority-settings
@@ -199,11 +308,11 @@
 
 (defn generate-recommendations
   "Helper function to generate and provide recommendations based on current system load"
-  [system-data]
+  [{:keys [memory-usage cpu-usage free-space] :or {memory-usage 0 cpu-usage 0 free-space 0}}]
   (cond
     (> memory-usage 0.9) ["Free up memory", "Consider closing applications"]
     (> cpu-usage 0.85) ["Reduce CPU load", "Close unnecessary programs"]
-    (< free-disk=space 1000000000) ["Free up disk space"]
+    (< free-space 1000000000) ["Free up disk space"]
     :else ["System Healthy"]))
 
 (defn determine-status
@@ -222,7 +331,7 @@
   []
   (let [system-data (gather-all-system-data)
         warnings (let [w (analyze-warnings system-data)]
-                   (if (string/blank? w)
+                   (if (empty? w)
                      "No warnings detected"
                      w))]
     ({:status (determine-status system-data warnings)
@@ -242,8 +351,43 @@
   [])
 
 (defn get-cached-limits
-  ""
-  [])
+  "Limits as of the last refresh, nil before initialize-system-limits!"
+  []
+  @current-system-limits)
+
+(defn update-system-limits!
+  "Recalculate the adaptive limits from the latest load snapshot and swap them in as a whole"
+  []
+  (let [base (calculate-default-session-limits (get-runtime-info))
+        limits (assoc (calculate-adaptive-limits base)
+                 :base-limits base
+                 :updated-at (utils/generate-timestamp))]
+    (reset! current-system-limits limits)))
+
+(defn- sample!
+  "One sampler tick. Fired on the timer wheel's thread, so the reading itself happens in the agent action"
+  []
+  (send-via sampler-executor load-sampler #(record-sample % (take-load-sample))))
+
+(defn start-load-sampling!
+  "Start sampling every interval-ms in the background, restarting it if it's already running"
+  ([] (start-load-sampling! sample-interval-ms))
+  ([interval-ms]
+   (get-current-system-load)                                ; The first CPU reading is garbage, spend it an interval before the first sample
+   (add-watch load-sampler ::limits                         ; Every new snapshot refreshes the limits, all in one reset!
+              (fn [_ _ _ _] (update-system-limits!)))
+   (let [task (.scheduleAtFixedRate (HashedWheelTimer/shared)
+                                    ^Runnable sample!
+                                    (long interval-ms) (long interval-ms) TimeUnit/MILLISECONDS)]
+     (when-let [previous (first (reset-vals! sampler-task task))]
+       (.cancel ^HashedWheelTimer$Timeout previous))
+     task)))
+
+(defn stop-load-sampling!
+  "Stop the background sampler, the last snapshot stays available"
+  []
+  (when-let [task (first (reset-vals! sampler-task nil))]
+    (.cancel ^HashedWheelTimer$Timeout task)))
 
 ; Main API
 ; Use 'wrap-try-catch' function for these functions below
@@ -251,14 +395,24 @@
 ; It's useful to have structured responses for Kotlin apparently
 
 (defn initialize-system-limits!
-  ""
-  [])
+  "Calculate the initial limits and start the background load sampler"
+  []
+  (utils/wrap-try-catch
+    (fn []
+      (when-not @sampler-task
+        (start-load-sampling!))
+      (update-system-limits!))))
 
 (defn get-current-limits
-  ""
-  [])
+  "Cached limits, calculated once on the spot if nothing has initialized them yet"
+  []
+  (utils/wrap-try-catch
+    (fn []
+      (or (get-cached-limits)
+          (update-system-limits!)))))
 
 (defn refresh-system-limits!
-  ""
-  [])
+  "Recalculate the limits now instead of waiting for the next sample"
+  []
+  (utils/wrap-try-catch update-system-limits!))
 
@@ -1,4 +1,4 @@
-(ns org.example.gui_repl.backend.utils
+(ns org.example.gui-repl.backend.utils
     "Shared utilities and helper functions for the GUI REPL backend"
   (:require [clojure.java.io :as io]
             [clojure.string :as str]
@@ -7,7 +7,8 @@
            (java.time LocalDateTime)
            (java.time.format DateTimeFormatter)
            (java.util ArrayList UUID)
-           (java.util.concurrent TimeUnit)))
+           (java.util.concurrent ExecutionException TimeUnit)
+           (org.example.gui_repl.common HashedWheelTimer HashedWheelTimer$Timeout)))
 
 ; ID Generation
 
@@ -38,7 +39,7 @@
 (defn clj-seq->java-map
       "Convert Clojure sequence to Java list"
       [clj-seq]
-      (ArrayList clj-seq))
+      (ArrayList. clj-seq))
 
 (defn keyword-keys->string-keys
       "Convert map with keyword keys to string keys for Java interop"
@@ -197,14 +198,24 @@
       (/ millis 1000.0))
 
 (defn timeout-future
-      "Create a future that times out after specified milliseconds"
+      "Run f on a future and return its result, or nil if it takes longer than timeout-ms (f is cancelled then).
+      If f throws, so does this, with an ExecutionException around it like deref of a future"
       [timeout-ms f]
-      (let [future (future (f))
-            timeout-future (future
-                             (Thread/sleep timeout-ms) ; Check why this is a warning and if I have to worry
-                             ::timeout)]
-           (first (filter #(not= % ::timeout)
-                          (map deref [future timeout-future])))))
+      (let [result (promise)
+            task (future (deliver result (try [::value (f)]
+                                              (catch Throwable t [::error t])))) ; Otherwise nothing is delivered and we'd wait out the timeout
+            deadline (.schedule (HashedWheelTimer/shared)   ; A slot on the shared timer wheel, not a sleeping thread
+                                ^Runnable (fn []
+                                              (when (deliver result ::timeout) ; nil when f got there first
+                                                    (future-cancel task)))
+                                (long timeout-ms) TimeUnit/MILLISECONDS)
+            value @result]
+           (.cancel ^HashedWheelTimer$Timeout deadline)
+           (when-not (= value ::timeout)
+                     (let [[outcome x] value]
+                          (if (= outcome ::error)
+                            (throw (ExecutionException. ^Throwable x))
+                            x)))))
 
 ; Process Utils
 
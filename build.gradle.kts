@@ -6,6 +6,7 @@ plugins {
   id("dev.clojurephant.clojure") version "0.8.0" apply false
   id("org.javamodularity.moduleplugin") version "1.8.12" apply false
   id("org.beryx.jlink") version "2.25.0" apply false
+  id("me.champeau.jmh") version "0.7.2" apply false
 }
 
 allprojects {
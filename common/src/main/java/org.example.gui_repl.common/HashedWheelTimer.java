@@ -0,0 +1,297 @@
+package org.example.gui_repl.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel (Varghese and Lauck, the one Netty uses) for deadlines and periodic ticks.
+ * Scheduling and cancelling are O(1): a timeout goes into a lock-free queue, and one worker thread
+ * moves it into the slot of the wheel it expires in. Every tick the worker only looks at one slot,
+ * so thousands of pending command deadlines cost a few objects each and no threads.
+ *
+ * The price is precision: timeouts fire on the first tick after their deadline, i.e. up to one tick
+ * (10 ms by default) late. That's fine for command timeouts, liveness checks and sampling.
+ *
+ * Tasks run on the worker thread and must be quick, anything that blocks should hand itself off to
+ * an executor. {@link #shared()} is the one instance the UI and the backend both schedule on.
+ */
+public final class HashedWheelTimer {
+
+    public static final long DEFAULT_TICK_MILLIS = 10;
+    public static final int DEFAULT_WHEEL_SIZE = 512; // ~5 s per turn at 10 ms, longer timeouts count rounds
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000; // So a burst of scheduling can't stall expiry
+
+    private static final class SharedHolder {
+        static final HashedWheelTimer INSTANCE =
+                new HashedWheelTimer("repl-timer-wheel", DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+    }
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startTime = System.nanoTime(); // Deadlines are kept relative to this
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong(0);
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick = 0; // Worker thread only
+    private final List<Timeout> rescheduled = new ArrayList<>(); // Periodic timeouts that fired this tick, worker thread only
+
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+        }
+        int size = Integer.highestOneBit(wheelSize - 1) << 1; // Next power of two, so a slot is just tick & mask
+        this.wheel = new Bucket[Math.max(size, 1)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true); // Pending timeouts never keep the JVM alive
+        worker.start();
+    }
+
+    /** The timer shared by everything in the app, started on first use. */
+    public static HashedWheelTimer shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /** Runs task once, on the worker thread, on the first tick after the delay. */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(new Timeout(task, deadlineAfter(delay, unit), 0));
+    }
+
+    /**
+     * Runs task every period, on the worker thread, until the returned timeout is cancelled. Deadlines
+     * are spaced from the previous deadline, not from when the task ran, so ticks don't drift.
+     */
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        }
+        return add(new Timeout(task, deadlineAfter(initialDelay, unit), unit.toNanos(period)));
+    }
+
+    private long deadlineAfter(long delay, TimeUnit unit) {
+        return System.nanoTime() - startTime + Math.max(0, unit.toNanos(delay));
+    }
+
+    private Timeout add(Timeout timeout) {
+        if (!running) {
+            throw new IllegalStateException(worker.getName() + " is stopped");
+        }
+        pending.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    /** Timeouts scheduled and neither fired nor cancelled yet, periodic ones count until cancelled. */
+    public long getPendingTimeouts() {
+        return pending.get();
+    }
+
+    /** Stops the worker; whatever is still pending never fires. */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+        if (Thread.currentThread() != worker) {
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            if (!waitForNextTick()) {
+                break;
+            }
+            processCancelled();
+            transferAdded();
+            wheel[(int) (tick & mask)].expire();
+            reschedule();
+            tick++;
+        }
+    }
+
+    private boolean waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (running) {
+            long sleep = deadline - (System.nanoTime() - startTime);
+            if (sleep <= 0) {
+                return true;
+            }
+            LockSupport.parkNanos(this, sleep);
+        }
+        return false;
+    }
+
+    private void processCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferAdded() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = added.poll();
+            if (timeout == null) {
+                break;
+            }
+            if (timeout.state == Timeout.SCHEDULED) {
+                insert(timeout, tick);
+            }
+        }
+    }
+
+    // Puts the timeout in the slot of the tick it's due at, or of fromTick if that's already past.
+    // The slot comes around every wheel.length ticks, rounds counts the visits to skip.
+    private void insert(Timeout timeout, long fromTick) {
+        long dueTick = Math.max(timeout.deadline / tickNanos, fromTick);
+        timeout.remainingRounds = (dueTick - fromTick) / wheel.length;
+        wheel[(int) (dueTick & mask)].add(timeout);
+    }
+
+    // Doubly linked so a cancelled timeout can be unlinked without searching, worker thread only
+    private final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    fire(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    private void fire(Timeout timeout) {
+        if (timeout.period == 0) {
+            if (!Timeout.STATE.compareAndSet(timeout, Timeout.SCHEDULED, Timeout.EXPIRED)) {
+                return; // Cancelled, it just hasn't been unlinked yet
+            }
+            pending.decrementAndGet();
+            runTask(timeout);
+        } else if (timeout.state == Timeout.SCHEDULED) {
+            runTask(timeout);
+            timeout.deadline += timeout.period;
+            rescheduled.add(timeout);
+        }
+    }
+
+    // After the slot is done: a period that's a multiple of the wheel lands in the slot being expired,
+    // inserted during expire() it would be reached again and fire twice in one tick.
+    private void reschedule() {
+        for (Timeout timeout : rescheduled) {
+            // Cancelled while the task ran: cancel() already counted it out, and it's in no bucket
+            // for processCancelled to unlink it from, so just drop it
+            if (timeout.state == Timeout.SCHEDULED) {
+                insert(timeout, tick + 1); // This slot was already visited this tick, the next possible one is the next tick
+            }
+        }
+        rescheduled.clear();
+    }
+
+    private void runTask(Timeout timeout) {
+        try {
+            timeout.task.run();
+        } catch (Throwable t) {
+            System.err.println(worker.getName() + ": timer task failed: " + t);
+        }
+    }
+
+    /** Handle to a scheduled task. */
+    public final class Timeout {
+        private static final int SCHEDULED = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final Runnable task;
+        private final long period; // Nanos, 0 for a one-shot
+        private volatile int state = SCHEDULED;
+
+        // Worker thread only
+        private long deadline; // Nanos since startTime
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+        private Bucket bucket;
+
+        private Timeout(Runnable task, long deadline, long period) {
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        /**
+         * Makes sure the task doesn't run (again). Returns false if it already fired (one-shot) or
+         * was cancelled before. The slot it occupies is freed on the worker's next tick.
+         */
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, SCHEDULED, CANCELLED)) {
+                return false;
+            }
+            pending.decrementAndGet();
+            cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+    }
+}
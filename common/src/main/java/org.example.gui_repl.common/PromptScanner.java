@@ -0,0 +1,113 @@
+package org.example.gui_repl.common;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming prompt detector over raw interpreter output. Works on bytes as they come off the pipe,
+ * so a prompt like ">>> " (which never ends with a newline) is seen the moment its last byte
+ * arrives, and a prompt split across two reads is still matched. Nothing is allocated per line
+ * or per chunk.
+ *
+ * A prompt only counts at the start of a line or directly after another prompt: an interpreter
+ * fed several statements at once prints ">>> >>> >>> " for the ones that produce no output.
+ *
+ * Prompts are literal strings. None of them may be a prefix of another, since we report a prompt
+ * as soon as it is complete instead of waiting to see whether a longer one follows.
+ */
+public final class PromptScanner {
+
+    private final byte[][] prompts;
+    private final int maxLength;
+    private final long allPrompts;
+
+    // Matching state, carried across chunks
+    private int column = 0;     // Bytes seen since the line (or the last prompt) started
+    private long alive;         // Prompts that still match everything seen since then
+    private int lastPrompt = -1;
+
+    public PromptScanner(String... prompts) {
+        if (prompts.length == 0 || prompts.length > Long.SIZE) {
+            throw new IllegalArgumentException("Need between 1 and " + Long.SIZE + " prompts, got " + prompts.length);
+        }
+        this.prompts = new byte[prompts.length][];
+        int max = 0;
+        for (int i = 0; i < prompts.length; i++) {
+            byte[] bytes = prompts[i].getBytes(StandardCharsets.UTF_8);
+            if (bytes.length == 0) {
+                throw new IllegalArgumentException("Prompts can't be empty");
+            }
+            this.prompts[i] = bytes;
+            max = Math.max(max, bytes.length);
+        }
+        for (int i = 0; i < prompts.length; i++) {
+            for (int j = 0; j < prompts.length; j++) {
+                if (i != j && prompts[j].startsWith(prompts[i])) {
+                    throw new IllegalArgumentException("Prompt '" + prompts[i] + "' is a prefix of '" + prompts[j] + "'");
+                }
+            }
+        }
+        this.maxLength = max;
+        this.allPrompts = prompts.length == Long.SIZE ? -1L : (1L << prompts.length) - 1;
+        this.alive = allPrompts;
+    }
+
+    /**
+     * Scans buf[offset, offset + length) and stops right after the first complete prompt.
+     * Returns the index just past that prompt, or -1 if the chunk ended without one (in which
+     * case a partial match is remembered for the next call).
+     */
+    public int scan(byte[] buf, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = buf[i];
+            if (b == '\n') {
+                column = 0;
+                alive = allPrompts;
+                continue;
+            }
+            if (alive == 0) {
+                continue; // The common case: somewhere in the middle of an output line
+            }
+            long stillAlive = 0;
+            long candidates = alive;
+            while (candidates != 0) {
+                int k = Long.numberOfTrailingZeros(candidates);
+                candidates &= candidates - 1;
+                byte[] prompt = prompts[k];
+                if (prompt[column] == b) {
+                    if (column + 1 == prompt.length) {
+                        lastPrompt = k;
+                        // Another prompt may follow immediately, so start over as if at a line start
+                        column = 0;
+                        alive = allPrompts;
+                        return i + 1;
+                    }
+                    stillAlive |= 1L << k;
+                }
+            }
+            alive = stillAlive;
+            column = column < maxLength ? column + 1 : column;
+        }
+        return -1;
+    }
+
+    /** Index (into the constructor's prompts) of the prompt the last successful scan() stopped at. */
+    public int getLastPrompt() {
+        return lastPrompt;
+    }
+
+    public int getPromptLength(int prompt) {
+        return prompts[prompt].length;
+    }
+
+    public int getPromptCount() {
+        return prompts.length;
+    }
+
+    /** Forgets any partial match, e.g. when a new process takes over the stream. */
+    public void reset() {
+        column = 0;
+        alive = allPrompts;
+        lastPrompt = -1;
+    }
+}
@@ -1,4 +1,193 @@
 package org.example.gui_repl.common;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One REPL session as it's kept on disk, so it outlives the app: what it runs, what the tab is
+ * called, and a {@link SessionJournal} of everything typed into it and printed by it.
+ *
+ * Files, all in the workspace directory and named after the session id:
+ *   <id>.meta     name, command, args and prompts
+ *   <id>.journal  the journal
+ *   <id>.idx      the journal's checkpoints
+ *
+ * Opening a session only reads the metadata, the journal's index is read the first time it's used.
+ * All writes go to the journal writer thread, none of the methods here block on disk except the reads.
+ */
 public class Session {
+
+    private static final int META_VERSION = 1;
+
+    private final Path directory;
+    private final String id;
+    private final String name;
+    private final String command;
+    private final List<String> args;
+    private final List<String> prompts;
+    private final SessionJournal journal;
+
+    private Session(Path directory, String id, String name, String command, List<String> args, List<String> prompts) {
+        this.directory = directory;
+        this.id = id;
+        this.name = name;
+        this.command = command;
+        this.args = List.copyOf(args);
+        this.prompts = List.copyOf(prompts);
+        this.journal = new SessionJournal(directory.resolve(id + ".journal"), directory.resolve(id + ".idx"));
+    }
+
+    /** Text from the end of a session's journal, see {@link #recentOutput(int)}. */
+    public record RecentOutput(long firstLine, String text) { }
+
+    /** A new session with an empty journal, its metadata is written in the background. */
+    static Session create(Path directory, String name, String command, List<String> args, List<String> prompts) {
+        Session session = new Session(directory, UUID.randomUUID().toString(), name, command, args, prompts);
+        byte[] meta = session.encodeMeta();
+        SessionJournal.execute(() -> {
+            try {
+                Path file = session.metaFile();
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                Files.write(temp, meta);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                System.err.println("Failed to save session " + session.name + ": " + e.getMessage());
+            }
+        });
+        return session;
+    }
+
+    /** Reads a session's metadata; the journal isn't touched until it's needed. */
+    static Session open(Path directory, String id) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(directory.resolve(id + ".meta")))) {
+            if (in.readInt() != META_VERSION) {
+                throw new IOException("Unknown metadata version for session " + id);
+            }
+            String name = in.readUTF();
+            String command = in.readUTF();
+            List<String> args = readList(in);
+            List<String> prompts = readList(in);
+            return new Session(directory, id, name, command, args, prompts);
+        }
+    }
+
+    private byte[] encodeMeta() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(META_VERSION);
+            out.writeUTF(name);
+            out.writeUTF(command);
+            writeList(out, args);
+            writeList(out, prompts);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // In memory, can't happen
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeList(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static List<String> readList(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+
+    private Path metaFile() {
+        return directory.resolve(id + ".meta");
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public List<String> getArgs() {
+        return args;
+    }
+
+    public List<String> getPrompts() {
+        return prompts;
+    }
+
+    /** A command as it was sent to the interpreter (without the newline). */
+    public void appendInput(String command) {
+        journal.append(SessionJournal.INPUT, command.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Raw interpreter output, copied, so the caller can reuse its buffer. */
+    public void appendOutput(byte[] buffer, int offset, int length) {
+        if (length > 0) {
+            journal.append(SessionJournal.OUTPUT, Arrays.copyOfRange(buffer, offset, offset + length));
+        }
+    }
+
+    /** Completed lines in the journal. */
+    public long getLineCount() throws IOException {
+        return journal.lineCount();
+    }
+
+    /** Lines [from, from + count), for paging in old scrollback. */
+    public String[] readLines(long from, int count) throws IOException {
+        return journal.readLines(from, count);
+    }
+
+    /**
+     * The last few lines of the journal (plus whatever unfinished line follows them), and the number
+     * of the first one, i.e. how many older lines stay on disk.
+     */
+    public RecentOutput recentOutput(int lines) throws IOException {
+        long firstLine = Math.max(0, journal.lineCount() - lines);
+        return new RecentOutput(firstLine, journal.readFrom(firstLine));
+    }
+
+    /** Forgets the session's history, e.g. when the tab is cleared. */
+    public void clear() {
+        journal.clear();
+    }
+
+    void close() {
+        journal.close();
+    }
+
+    void delete() {
+        journal.delete();
+        SessionJournal.execute(() -> {
+            try {
+                Files.deleteIfExists(metaFile());
+            } catch (IOException e) {
+                System.err.println("Failed to delete session " + name + ": " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + id + ")";
+    }
 }
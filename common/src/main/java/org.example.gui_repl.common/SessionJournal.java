@@ -0,0 +1,480 @@
+package org.example.gui_repl.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only binary journal of everything typed into a session and everything it printed, so the
+ * session's scrollback survives a restart.
+ *
+ *   file header  int32 magic, int32 version, int64 reserved
+ *   record       int32 payload length, int8 type, int64 timestamp (ms), payload
+ *
+ * Output payloads are the interpreter's raw bytes, inputs are UTF-8 commands. Read back in order,
+ * with a newline after every input, they give the text the tab showed. A record of type 0 marks the
+ * end: the payload is written first, then a fresh end marker behind it, and the header last, so a
+ * crash halfway through a record leaves a journal that simply ends before it.
+ *
+ * The journal is written through 4 MB memory-mapped regions, an append is a copy into the page cache.
+ * Every 64 KB a checkpoint (record offset, lines before it) is noted, and a timer tick flushes new
+ * checkpoints to a small index file next to the journal. Opening a journal reads the index and only
+ * scans what came after the last checkpoint; reading any line later scans at most one checkpoint
+ * interval. Neither needs the whole journal.
+ *
+ * All writing happens on one shared daemon thread, so callers (the reader and FX threads) only ever
+ * hand over a byte array. Reads use plain positional reads and can happen on any thread.
+ */
+public final class SessionJournal implements Closeable {
+
+    public static final byte INPUT = 1;
+    public static final byte OUTPUT = 2;
+
+    private static final int MAGIC = 0x47524a31; // "GRJ1"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER = 16;
+    private static final int RECORD_HEADER = 13;
+    private static final byte[] END_MARKER = new byte[5]; // Length 0, type 0
+    static final long REGION_BYTES = 4L << 20;
+    static final long CHECKPOINT_BYTES = 64 * 1024;
+    private static final long INDEX_FLUSH_MS = 2_000;
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Set<SessionJournal> OPEN = ConcurrentHashMap.newKeySet();
+
+    static {
+        HashedWheelTimer.shared().scheduleAtFixedRate(() -> execute(() -> OPEN.forEach(SessionJournal::flushIndex)),
+                INDEX_FLUSH_MS, INDEX_FLUSH_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private final Path journalFile;
+    private final Path indexFile;
+
+    // Set up by load(), on whichever thread needs the journal first
+    private volatile boolean loaded = false;
+    private FileChannel channel;
+    private FileChannel indexChannel;
+
+    // Pairs of (record offset, lines completed before it), guarded by this
+    private long[] checkpoints = new long[64];
+    private int checkpointCount = 0;
+    private int flushedCheckpoints = 0;
+
+    // Written on the writer thread only, volatile so readers know how far the journal goes
+    private volatile long position;
+    private volatile long lines;
+    private long nextCheckpoint;
+    private MappedByteBuffer region;
+    private long regionStart = -1;
+    private final ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER);
+    private boolean failed = false; // Stop writing after the first I/O error instead of failing every record
+    private boolean closed = false; // By close() or delete(), records queued after that are dropped
+
+    public SessionJournal(Path journalFile, Path indexFile) {
+        this.journalFile = journalFile;
+        this.indexFile = indexFile;
+    }
+
+    /** Runs a task on the journal writer, after every record handed over before it. */
+    static void execute(Runnable task) {
+        WRITER.execute(task);
+    }
+
+    /** Waits until everything handed to the writer so far is written. */
+    static void sync(long timeout, TimeUnit unit) {
+        Future<?> done = WRITER.submit(() -> { });
+        try {
+            done.get(timeout, unit);
+        } catch (Exception e) {
+            System.err.println("Session journal writer did not catch up: " + e);
+        }
+    }
+
+    /** Queues a record, the caller's array must not be changed afterwards. */
+    public void append(byte type, byte[] payload) {
+        long timestamp = System.currentTimeMillis();
+        execute(() -> write(type, timestamp, payload));
+    }
+
+    /** Completed lines, i.e. newlines in the text so far. Loads the index on first use. */
+    public long lineCount() throws IOException {
+        load();
+        return lines;
+    }
+
+    // --- Loading ---
+
+    private synchronized void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        indexChannel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < FILE_HEADER) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).putInt(MAGIC).putInt(VERSION).putLong(0).flip();
+            writeFully(channel, header, 0);
+            writeFully(channel, ByteBuffer.wrap(END_MARKER), FILE_HEADER);
+            indexChannel.truncate(0);
+            position = FILE_HEADER;
+            lines = 0;
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(journalFile + " is not a session journal");
+            }
+            readCheckpoints();
+            scanTail();
+        }
+        nextCheckpoint = (checkpointCount == 0 ? FILE_HEADER : checkpoints[2 * checkpointCount - 2]) + CHECKPOINT_BYTES;
+        loaded = true;
+        OPEN.add(this);
+    }
+
+    private void readCheckpoints() throws IOException {
+        int count = (int) (indexChannel.size() / (2 * Long.BYTES)); // A torn last entry is ignored
+        ByteBuffer buffer = ByteBuffer.allocate(count * 2 * Long.BYTES);
+        readFully(indexChannel, buffer, 0);
+        checkpoints = new long[Math.max(64, 2 * count)];
+        buffer.flip().asLongBuffer().get(checkpoints, 0, 2 * count);
+        checkpointCount = count;
+        flushedCheckpoints = count;
+    }
+
+    // From the last checkpoint to the end marker, noting the checkpoints that never made it to the index
+    private void scanTail() throws IOException {
+        long at = checkpointCount == 0 ? FILE_HEADER : checkpoints[2 * checkpointCount - 2];
+        long count = checkpointCount == 0 ? 0 : checkpoints[2 * checkpointCount - 1];
+        long next = at + CHECKPOINT_BYTES;
+        RecordReader reader = new RecordReader(at, channel.size());
+        while (reader.next()) {
+            if (reader.start >= next) {
+                addCheckpoint(reader.start, count);
+                next = reader.start + CHECKPOINT_BYTES;
+            }
+            count += reader.newlines();
+        }
+        position = reader.start;
+        lines = count;
+    }
+
+    // --- Writing, writer thread only ---
+
+    private void write(byte type, long timestamp, byte[] payload) {
+        if (closed || failed) {
+            return;
+        }
+        try {
+            load();
+            long at = position;
+            if (at >= nextCheckpoint) {
+                addCheckpoint(at, lines);
+                nextCheckpoint = at + CHECKPOINT_BYTES;
+            }
+            long end = at + RECORD_HEADER + payload.length;
+            put(at + RECORD_HEADER, payload);
+            put(end, END_MARKER);
+            recordHeader.clear();
+            recordHeader.putInt(payload.length).put(type).putLong(timestamp);
+            put(at, recordHeader.array()); // Makes the record visible
+            lines += countNewlines(type, payload, payload.length);
+            position = end;
+        } catch (IOException e) {
+            failed = true;
+            System.err.println("Session journal " + journalFile + " stopped: " + e.getMessage());
+        }
+    }
+
+    private void put(long at, byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            long start = at - at % REGION_BYTES;
+            if (start != regionStart) {
+                region = channel.map(FileChannel.MapMode.READ_WRITE, start, REGION_BYTES);
+                regionStart = start;
+            }
+            int inRegion = (int) (at - start);
+            int n = (int) Math.min(bytes.length - offset, REGION_BYTES - inRegion);
+            region.put(inRegion, bytes, offset, n);
+            at += n;
+            offset += n;
+        }
+    }
+
+    private synchronized void addCheckpoint(long offset, long linesBefore) {
+        if (2 * checkpointCount == checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, checkpoints.length * 2);
+        }
+        checkpoints[2 * checkpointCount] = offset;
+        checkpoints[2 * checkpointCount + 1] = linesBefore;
+        checkpointCount++;
+    }
+
+    // Writer thread, from the periodic tick and on close
+    private void flushIndex() {
+        long[] pending;
+        int from;
+        synchronized (this) {
+            if (!loaded || flushedCheckpoints == checkpointCount) {
+                return;
+            }
+            from = flushedCheckpoints;
+            pending = Arrays.copyOfRange(checkpoints, 2 * from, 2 * checkpointCount);
+            flushedCheckpoints = checkpointCount;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(pending.length * Long.BYTES);
+        buffer.asLongBuffer().put(pending);
+        try {
+            writeFully(indexChannel, buffer, (long) from * 2 * Long.BYTES);
+        } catch (IOException e) {
+            System.err.println("Failed to write checkpoints of " + journalFile + ": " + e.getMessage());
+        }
+    }
+
+    /** Forgets everything, e.g. when the user clears the tab. */
+    public void clear() {
+        execute(() -> {
+            if (closed) {
+                return;
+            }
+            try {
+                load();
+                put(FILE_HEADER, END_MARKER);
+                synchronized (this) {
+                    checkpointCount = 0;
+                    flushedCheckpoints = 0;
+                }
+                indexChannel.truncate(0);
+                position = FILE_HEADER;
+                lines = 0;
+                nextCheckpoint = FILE_HEADER + CHECKPOINT_BYTES;
+            } catch (IOException e) {
+                System.err.println("Failed to clear " + journalFile + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /** Flushes the index and closes the files, after every record queued before it. */
+    @Override
+    public void close() {
+        execute(this::closeNow);
+    }
+
+    /** Closes and deletes the journal and its index. */
+    public void delete() {
+        execute(() -> {
+            closeNow();
+            try {
+                Files.deleteIfExists(journalFile);
+                Files.deleteIfExists(indexFile);
+            } catch (IOException e) {
+                System.err.println("Failed to delete " + journalFile + ": " + e.getMessage());
+            }
+        });
+    }
+
+    // The reader thread's last output can still land after this, on a closed tab or during shutdown
+    private void closeNow() {
+        closed = true;
+        if (!loaded || !OPEN.remove(this)) {
+            return;
+        }
+        flushIndex();
+        try {
+            if (region != null) {
+                region.force();
+                region = null;
+            }
+            channel.truncate(position + END_MARKER.length); // Hand back the rest of the last region
+        } catch (IOException | UnsupportedOperationException e) {
+            // Some platforms won't truncate a mapped file, the zeros behind the end marker are harmless
+        }
+        try {
+            channel.close();
+            indexChannel.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close " + journalFile + ": " + e.getMessage());
+        }
+    }
+
+    // --- Reading, any thread ---
+
+    /**
+     * Lines [from, from + count) of the text, fewer if the journal ends first. The last one may be
+     * unfinished (no newline yet).
+     */
+    public String[] readLines(long from, int count) throws IOException {
+        byte[] bytes = read(from, count);
+        String[] result = new String[count];
+        int n = 0;
+        int start = 0;
+        for (int i = 0; i < bytes.length && n < count; i++) {
+            if (bytes[i] == '\n') {
+                result[n++] = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+                start = i + 1;
+            }
+        }
+        if (start < bytes.length && n < count) {
+            result[n++] = new String(bytes, start, bytes.length - start, StandardCharsets.UTF_8);
+        }
+        return n == count ? result : Arrays.copyOf(result, n);
+    }
+
+    /** Everything from the start of line from to the end, newlines included. */
+    public String readFrom(long from) throws IOException {
+        return new String(read(from, Long.MAX_VALUE), StandardCharsets.UTF_8);
+    }
+
+    private byte[] read(long fromLine, long maxLines) throws IOException {
+        load();
+        long end = position;
+        long start = FILE_HEADER;
+        long line = 0;
+        synchronized (this) {
+            // Last checkpoint before the line starts, i.e. with fewer lines completed than fromLine
+            int low = 0;
+            int high = checkpointCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (checkpoints[2 * mid + 1] < fromLine) {
+                    start = checkpoints[2 * mid];
+                    line = checkpoints[2 * mid + 1];
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long taken = 0;
+        RecordReader reader = new RecordReader(start, end);
+        while (taken < maxLines && reader.next()) {
+            int length = reader.textLength();
+            int copyFrom = line >= fromLine ? 0 : -1;
+            int copyTo = length;
+            for (int i = 0; i < length; i++) {
+                if (reader.textByte(i) != '\n') {
+                    continue;
+                }
+                if (line >= fromLine && ++taken == maxLines) {
+                    copyTo = i + 1;
+                    break;
+                }
+                if (++line == fromLine) {
+                    copyFrom = i + 1;
+                }
+            }
+            if (copyFrom >= 0) {
+                reader.copyText(out, copyFrom, copyTo);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static long countNewlines(byte type, byte[] payload, int length) {
+        long count = type == INPUT ? 1 : 0; // The newline the input was sent with
+        for (int i = 0; i < length; i++) {
+            if (payload[i] == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Walks records from a record boundary, stopping at the end marker, at limit, or at a torn record
+    private final class RecordReader {
+        long start;            // Offset of the current record once next() returned true, else where reading stopped
+        private long following;
+        private final long limit;
+        private final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        private byte[] payload = new byte[8192];
+        private int length;
+        private byte type;
+
+        RecordReader(long from, long limit) {
+            this.following = from;
+            this.start = from;
+            this.limit = limit;
+        }
+
+        boolean next() throws IOException {
+            start = following;
+            if (start + RECORD_HEADER > limit) {
+                return false;
+            }
+            header.clear();
+            readFully(channel, header, start);
+            length = header.getInt(0);
+            type = header.get(4);
+            if (type == 0 || length < 0 || start + RECORD_HEADER + length > limit) {
+                return false;
+            }
+            if (payload.length < length) {
+                payload = new byte[Math.max(length, payload.length * 2)];
+            }
+            readFully(channel, ByteBuffer.wrap(payload, 0, length), start + RECORD_HEADER);
+            following = start + RECORD_HEADER + length;
+            return true;
+        }
+
+        long newlines() {
+            return countNewlines(type, payload, length);
+        }
+
+        // The record as text: inputs get the newline they were sent with
+        int textLength() {
+            return type == INPUT ? length + 1 : length;
+        }
+
+        byte textByte(int i) {
+            return i == length ? (byte) '\n' : payload[i];
+        }
+
+        void copyText(ByteArrayOutputStream out, int from, int to) {
+            int end = Math.min(to, length);
+            if (end > from) {
+                out.write(payload, from, end - from);
+            }
+            if (from <= length && to > length) {
+                out.write('\n');
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long at) throws IOException {
+        long offset = at;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, offset);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of " + channel + " at " + offset);
+            }
+            offset += n;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long at) throws IOException {
+        long offset = at;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+}
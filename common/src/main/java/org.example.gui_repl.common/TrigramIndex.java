@@ -0,0 +1,340 @@
+package org.example.gui_repl.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Incremental inverted index over a stream of text, for find-as-you-type over millions of lines.
+ * Lines are grouped into blocks of {@link #BLOCK_LINES}; for every trigram (three consecutive chars
+ * of a line, lower-cased) the index keeps the sorted list of blocks it occurs in. A query's
+ * candidates are the blocks that have all of its trigrams, the caller then checks only those lines.
+ *
+ * Text is handed over with {@link #append(CharSequence)} and indexed on one shared daemon thread,
+ * so appending costs the caller a copy. Queries see whatever has been indexed so far. A line longer
+ * than {@link #MAX_LINE_CHARS} counts as several, wrapped the way the UI's scrollback wraps it.
+ *
+ * Memory is bounded: the budget (-Dgui.repl.search.max.postings, 16M, about 64 MB) is shared by every
+ * open index, so more tabs don't mean more memory. Once the postings of all of them exceed it, the
+ * largest index drops the oldest quarter of its blocks and those lines can no longer be found. Typical
+ * REPL output is repetitive enough that the budget covers a few million lines. {@link #close()} gives
+ * an index's share back.
+ */
+public final class TrigramIndex {
+
+    public static final int BLOCK_LINES = 64;
+    public static final int MAX_LINE_CHARS = 4096; // Not counting the newline
+    public static final long DEFAULT_MAX_POSTINGS = Long.getLong("gui.repl.search.max.postings", 16_000_000);
+
+    private static final int NONE = -1;
+    private static final ExecutorService INDEXER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "output-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Every open index and their postings, for the shared budget. Only touched on the indexer thread.
+    private static final List<TrigramIndex> open = new ArrayList<>();
+    private static long allPostings = 0;
+
+    private final long maxPostings;
+    private final boolean shared; // Counts against the shared budget, maxPostings is that budget
+
+    // Open addressing, trigram -> list id + 1 (0 is a free slot). Guarded by this, like everything below.
+    private long[] keys = new long[1 << 12];
+    private int[] ids = new int[1 << 12];
+    private int[][] postings = new int[1 << 10][];
+    private int[] postingSizes = new int[1 << 10];
+    private int lists = 0;
+    private long totalPostings = 0;
+
+    private long lineCount = 0;    // Complete lines indexed
+    private int firstBlock = 0;    // Older blocks were evicted
+    private int previous2 = NONE;  // The last two chars of the current line, trigrams span chunks
+    private int previous1 = NONE;
+    private int lineChars = 0;     // Of the current line, for wrapping
+
+    public TrigramIndex() {
+        this(DEFAULT_MAX_POSTINGS, true);
+    }
+
+    /** An index with a budget of its own, outside the shared one. */
+    public TrigramIndex(long maxPostings) {
+        this(maxPostings, false);
+    }
+
+    private TrigramIndex(long maxPostings, boolean shared) {
+        this.maxPostings = maxPostings;
+        this.shared = shared;
+        if (shared) {
+            INDEXER.execute(() -> open.add(this));
+        }
+    }
+
+    /** Queues text for indexing, it continues the previous chunk (lines may be split anywhere). */
+    public void append(CharSequence chunk) {
+        String text = chunk.toString();
+        INDEXER.execute(() -> index(text));
+    }
+
+    /** Forgets everything, after whatever was appended before it is indexed. */
+    public void clear() {
+        INDEXER.execute(this::reset);
+    }
+
+    /** Forgets everything and leaves the shared budget, for a closed tab. Appending after this is a mistake. */
+    public void close() {
+        INDEXER.execute(() -> {
+            reset();
+            open.remove(this);
+        });
+    }
+
+    // Indexer thread
+    private synchronized void reset() {
+        if (shared) {
+            allPostings -= totalPostings;
+        }
+        keys = new long[1 << 12];
+        ids = new int[1 << 12];
+        postings = new int[1 << 10][];
+        postingSizes = new int[1 << 10];
+        lists = 0;
+        totalPostings = 0;
+        lineCount = 0;
+        firstBlock = 0;
+        previous2 = previous1 = NONE;
+        lineChars = 0;
+    }
+
+    /** The case folding the index uses, for checking candidates with the same rules. */
+    public static String fold(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    // Indexer thread
+    private synchronized void index(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                lineCount++;
+                previous2 = previous1 = NONE;
+                lineChars = 0;
+                continue;
+            }
+            if (lineChars == MAX_LINE_CHARS) {
+                lineCount++; // Wrapped, no trigram spans the break
+                previous2 = previous1 = NONE;
+                lineChars = 0;
+            }
+            lineChars++;
+            int folded = Character.toLowerCase(c);
+            if (previous2 != NONE) {
+                add(key(previous2, previous1, folded), (int) (lineCount / BLOCK_LINES));
+            }
+            previous2 = previous1;
+            previous1 = folded;
+        }
+    }
+
+    private static long key(int c1, int c2, int c3) {
+        return ((long) c1 << 32) | ((long) c2 << 16) | c3;
+    }
+
+    private void add(long key, int block) {
+        int slot = find(key);
+        int id = ids[slot] - 1;
+        if (id < 0) {
+            id = newList(slot, key);
+        }
+        int size = postingSizes[id];
+        int[] list = postings[id];
+        if (size > 0 && list[size - 1] == block) {
+            return; // Already noted for this block
+        }
+        if (size == list.length) {
+            list = postings[id] = Arrays.copyOf(list, size * 2);
+        }
+        list[size] = block;
+        postingSizes[id] = size + 1;
+        totalPostings++;
+        if (!shared) {
+            if (totalPostings > maxPostings) {
+                evictOldest();
+            }
+        } else if (++allPostings > maxPostings) {
+            evictLargest();
+        }
+    }
+
+    // Over the shared budget, the index with the most postings pays, usually the busiest tab. Holds
+    // this lock and takes the other one: only the indexer thread ever holds two, so no deadlock.
+    private void evictLargest() {
+        TrigramIndex largest = this;
+        for (TrigramIndex index : open) {
+            if (index.totalPostings > largest.totalPostings) {
+                largest = index;
+            }
+        }
+        synchronized (largest) {
+            largest.evictOldest();
+        }
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (mix(key) & mask);
+        while (ids[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static long mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 29);
+    }
+
+    private int newList(int slot, long key) {
+        if (lists == postings.length) {
+            postings = Arrays.copyOf(postings, lists * 2);
+            postingSizes = Arrays.copyOf(postingSizes, lists * 2);
+        }
+        int id = lists++;
+        postings[id] = new int[4];
+        keys[slot] = key;
+        ids[slot] = id + 1;
+        if (lists * 2 > keys.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldIds = ids;
+        keys = new long[oldKeys.length * 2];
+        ids = new int[oldIds.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldIds[i] != 0) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                ids[slot] = oldIds[i];
+            }
+        }
+    }
+
+    // Drops the oldest quarter of the blocks from every list, O(postings) but only every so often
+    private void evictOldest() {
+        int lastBlock = (int) (lineCount / BLOCK_LINES);
+        int cutoff = firstBlock + Math.max(1, (lastBlock - firstBlock) / 4);
+        long kept = 0;
+        for (int id = 0; id < lists; id++) {
+            int[] list = postings[id];
+            int size = postingSizes[id];
+            int from = lowerBound(list, size, cutoff);
+            if (from > 0) {
+                int remaining = size - from;
+                if (remaining <= list.length / 4) {
+                    postings[id] = Arrays.copyOfRange(list, from, from + Math.max(4, remaining));
+                } else {
+                    System.arraycopy(list, from, list, 0, remaining);
+                }
+                postingSizes[id] = remaining;
+            }
+            kept += postingSizes[id];
+        }
+        if (shared) {
+            allPostings -= totalPostings - kept;
+        }
+        totalPostings = kept;
+        firstBlock = cutoff;
+    }
+
+    private static int lowerBound(int[] list, int size, int value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (list[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Blocks before beforeBlock that may have a line containing query (ignoring case), newest first,
+     * at most max of them. Callers page backwards from Integer.MAX_VALUE until they have enough hits
+     * or get an empty page. Null if the query is too short to have a trigram.
+     */
+    public synchronized int[] candidateBlocks(String query, int beforeBlock, int max) {
+        String folded = fold(query);
+        if (folded.length() < 3) {
+            return null;
+        }
+        // Postings of every distinct trigram, the shortest drives the intersection
+        int count = folded.length() - 2;
+        int[] trigramLists = new int[count];
+        for (int i = 0; i < count; i++) {
+            int slot = find(key(folded.charAt(i), folded.charAt(i + 1), folded.charAt(i + 2)));
+            if (ids[slot] == 0) {
+                return new int[0];
+            }
+            trigramLists[i] = ids[slot] - 1;
+        }
+        int shortest = trigramLists[0];
+        for (int id : trigramLists) {
+            if (postingSizes[id] < postingSizes[shortest]) {
+                shortest = id;
+            }
+        }
+        int[] result = new int[Math.min(max, postingSizes[shortest])];
+        int found = 0;
+        for (int i = lowerBound(postings[shortest], postingSizes[shortest], beforeBlock) - 1; i >= 0 && found < max; i--) {
+            int block = postings[shortest][i];
+            boolean everywhere = true;
+            for (int id : trigramLists) {
+                if (id != shortest && Arrays.binarySearch(postings[id], 0, postingSizes[id], block) < 0) {
+                    everywhere = false;
+                    break;
+                }
+            }
+            if (everywhere) {
+                result[found++] = block;
+            }
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    /** Lines before this one were evicted and can't be found any more. */
+    public synchronized long getFirstIndexedLine() {
+        return (long) firstBlock * BLOCK_LINES;
+    }
+
+    /** Lines indexed so far, the unfinished last line included. */
+    public synchronized long getLineCount() {
+        return lineCount + (previous1 == NONE ? 0 : 1);
+    }
+
+    public synchronized long getPostings() {
+        return totalPostings;
+    }
+
+    /** Rough heap footprint: postings, the trigram table and list headers. */
+    public synchronized long getMemoryBytes() {
+        long bytes = (long) keys.length * (Long.BYTES + Integer.BYTES) + (long) postingSizes.length * Integer.BYTES;
+        for (int id = 0; id < lists; id++) {
+            bytes += 16 + (long) postings[id].length * Integer.BYTES;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.gui_repl.common;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The sessions that are open, in tab order, kept in a directory so the next start can bring them back.
+ * workspace.list holds one session id per line, see {@link Session} for the files of each session.
+ *
+ * The directory is ~/.gui-repl/workspace unless -Dgui.repl.workspace=... says otherwise.
+ */
+public class Workspace {
+
+    private static final String LIST_FILE = "workspace.list";
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    private final Path directory;
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+
+    private Workspace(Path directory) {
+        this.directory = directory;
+    }
+
+    public static Path defaultDirectory() {
+        String configured = System.getProperty("gui.repl.workspace");
+        return configured != null ? Path.of(configured) : Path.of(System.getProperty("user.home"), ".gui-repl", "workspace");
+    }
+
+    /**
+     * Reads the list and the metadata of every session on it. Sessions whose metadata is gone or
+     * unreadable are skipped; files of sessions that aren't on the list (tabs closed while the delete
+     * was still queued) are removed.
+     */
+    public static Workspace open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Workspace workspace = new Workspace(directory);
+        List<String> ids;
+        try {
+            ids = Files.readAllLines(directory.resolve(LIST_FILE), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            ids = List.of();
+        }
+        for (String id : ids) {
+            if (id.isBlank()) {
+                continue;
+            }
+            try {
+                workspace.sessions.add(Session.open(directory, id.strip()));
+            } catch (IOException e) {
+                System.err.println("Skipping session " + id + ": " + e.getMessage());
+            }
+        }
+        workspace.removeOrphans();
+        return workspace;
+    }
+
+    private void removeOrphans() throws IOException {
+        Set<String> known = new HashSet<>();
+        for (Session session : sessions) {
+            known.add(session.getId());
+        }
+        List<Path> orphans = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{meta,journal,idx}")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!known.contains(name.substring(0, name.lastIndexOf('.')))) {
+                    orphans.add(file);
+                }
+            }
+        }
+        if (!orphans.isEmpty()) {
+            SessionJournal.execute(() -> orphans.forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    System.err.println("Failed to delete " + file + ": " + e.getMessage());
+                }
+            }));
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /** The sessions in tab order. */
+    public List<Session> getSessions() {
+        return List.copyOf(sessions);
+    }
+
+    /** A new session at the end of the list. */
+    public Session create(String name, String command, List<String> args, List<String> prompts) {
+        Session session = Session.create(directory, name, command, args, prompts);
+        sessions.add(session);
+        save();
+        return session;
+    }
+
+    /** Takes a session off the list and deletes its files, for a tab the user closed. */
+    public void remove(Session session) {
+        if (sessions.remove(session)) {
+            save();
+            session.delete();
+        }
+    }
+
+    /** Writes the list in the background, after whatever the journal writer has queued. */
+    public void save() {
+        List<String> ids = sessions.stream().map(Session::getId).toList();
+        SessionJournal.execute(() -> {
+            try {
+                Path file = directory.resolve(LIST_FILE);
+                Path temp = directory.resolve(LIST_FILE + ".tmp");
+                Files.write(temp, ids, StandardCharsets.UTF_8);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                System.err.println("Failed to save the workspace: " + e.getMessage());
+            }
+        });
+    }
+
+    /** Closes every journal and waits (a bit) until everything queued is on disk. For app shutdown. */
+    public void close() {
+        for (Session session : sessions) {
+            session.close();
+        }
+        SessionJournal.sync(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
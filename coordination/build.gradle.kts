@@ -1,3 +1,6 @@
+import org.jetbrains.kotlin.gradle.dsl.JvmTarget
+import org.jetbrains.kotlin.gradle.tasks.KotlinCompile
+
 plugins {
     java
     kotlin("jvm")
@@ -9,4 +12,20 @@ dependencies {
 
     implementation("org.jetbrains.kotlinx:kotlinx-coroutines-core:1.7.3")
     implementation("org.jetbrains.kotlinx:kotlinx-coroutines-javafx:1.7.3")
-}
\ No newline at end of file
+}
+
+// Same target as the Java side; the session service needs Java 21 for virtual threads
+tasks.withType<KotlinCompile> {
+    compilerOptions {
+        jvmTarget.set(JvmTarget.JVM_21)
+    }
+}
+
+// Headless session server, e.g. ./gradlew :coordination:runHeadless -PheadlessArgs="--unix /tmp/gui-repl.sock"
+tasks.register<JavaExec>("runHeadless") {
+    group = "application"
+    description = "Runs the REPL session server without a GUI."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.example.gui_repl.coordination.HeadlessServerKt")
+    args(providers.gradleProperty("headlessArgs").getOrElse("--tcp 0").split(" "))
+}
@@ -1,6 +1,8 @@
 module org.example.gui_repl.coordination {
     requires kotlin.stdlib;
+    requires kotlinx.coroutines.core;
+    requires org.example.gui_repl.common; // PromptScanner
 
     opens org.example.gui_repl.coordination to javafx.fxml;
     exports org.example.gui_repl.coordination;
-}
\ No newline at end of file
+}
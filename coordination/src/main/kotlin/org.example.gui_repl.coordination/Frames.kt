@@ -0,0 +1,127 @@
+package org.example.gui_repl.coordination
+
+import java.io.EOFException
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.GatheringByteChannel
+import java.nio.channels.ReadableByteChannel
+
+/*
+Wire format of the headless protocol, all integers big-endian:
+
+    int32  length      bytes that follow (9 + payload)
+    int8   type        see FrameType
+    int32  sessionId   chosen by the client when it opens the session, scoped to the connection
+    int32  requestId   chosen by the client, echoed on every frame answering that request
+    byte[] payload
+
+Session ids are picked by the client so it can pipeline: OPEN, EXECUTE, EXECUTE, CLOSE can all be
+sent without waiting for a single answer. Requests of one session run in the order they arrived,
+different sessions run concurrently.
+ */
+
+object FrameType {
+    // Client -> server
+    const val OPEN: Byte = 1      // payload: empty for python, or command \0 args... \0\0 prompts... (UTF-8)
+    const val EXECUTE: Byte = 2   // payload: int32 timeout in ms (0 = server default) + command (UTF-8)
+    const val INTERRUPT: Byte = 3 // SIGINT the session's interpreter, answered by nothing
+    const val CLOSE: Byte = 4     // after the session's pending requests
+
+    // Server -> client
+    const val OPENED: Byte = 16   // payload: the interpreter's banner
+    const val OUTPUT: Byte = 17   // payload: a chunk of the command's output, streamed as it's printed
+    const val DONE: Byte = 18     // payload: int64 round trip in ns, the command is back at its prompt
+    const val ERROR: Byte = 19    // payload: message
+    const val CLOSED: Byte = 20
+}
+
+class Frame(val type: Byte, val sessionId: Int, val requestId: Int, val payload: ByteArray = EMPTY) {
+
+    fun text(): String = String(payload, Charsets.UTF_8)
+
+    override fun toString(): String = "Frame(type=$type, session=$sessionId, request=$requestId, ${payload.size} bytes)"
+
+    companion object {
+        const val HEADER_BYTES = 9
+        const val MAX_FRAME_BYTES = 16 * 1024 * 1024
+        private val EMPTY = ByteArray(0)
+
+        fun text(type: Byte, sessionId: Int, requestId: Int, text: String) =
+            Frame(type, sessionId, requestId, text.toByteArray(Charsets.UTF_8))
+
+        fun execute(sessionId: Int, requestId: Int, command: String, timeoutMillis: Int = 0): Frame {
+            val commandBytes = command.toByteArray(Charsets.UTF_8)
+            return Frame(FrameType.EXECUTE, sessionId, requestId,
+                ByteBuffer.allocate(4 + commandBytes.size).putInt(timeoutMillis).put(commandBytes).array())
+        }
+
+        fun open(sessionId: Int, requestId: Int, config: SessionConfig): Frame {
+            val fields = listOf(config.command) + config.args + "" + config.prompts
+            return text(FrameType.OPEN, sessionId, requestId, fields.joinToString("\u0000"))
+        }
+
+        fun parseConfig(frame: Frame): SessionConfig {
+            if (frame.payload.isEmpty()) return SessionConfig.PYTHON
+            val text = frame.text()
+            val split = text.indexOf("\u0000\u0000")
+            require(split > 0) { "OPEN payload needs command \\0 args \\0\\0 prompts" }
+            val commandLine = text.substring(0, split).split('\u0000')
+            val prompts = text.substring(split + 2).split('\u0000').filter { it.isNotEmpty() }
+            return SessionConfig(commandLine.first(), commandLine.drop(1), prompts)
+        }
+    }
+}
+
+/** Decodes frames from a channel through one reusable buffer, growing it only for big frames. */
+class FrameReader(private val channel: ReadableByteChannel, capacity: Int = 64 * 1024) {
+    private var buffer: ByteBuffer = ByteBuffer.allocate(capacity).flip()
+
+    /** The next frame, or null when the peer closed the connection between frames. */
+    fun read(): Frame? {
+        while (true) {
+            if (buffer.remaining() >= 4) {
+                val length = buffer.getInt(buffer.position())
+                if (length < Frame.HEADER_BYTES || length > Frame.MAX_FRAME_BYTES) {
+                    throw IOException("Bad frame length $length")
+                }
+                if (buffer.remaining() >= 4 + length) {
+                    buffer.getInt()
+                    val type = buffer.get()
+                    val sessionId = buffer.getInt()
+                    val requestId = buffer.getInt()
+                    val payload = ByteArray(length - Frame.HEADER_BYTES)
+                    buffer.get(payload)
+                    return Frame(type, sessionId, requestId, payload)
+                }
+                if (buffer.capacity() < 4 + length) {
+                    buffer = ByteBuffer.allocate(maxOf(buffer.capacity() * 2, 4 + length)).put(buffer).flip()
+                }
+            }
+            buffer.compact()
+            val n = channel.read(buffer)
+            buffer.flip()
+            if (n == -1) {
+                if (buffer.hasRemaining()) throw EOFException("Connection closed in the middle of a frame")
+                return null
+            }
+        }
+    }
+}
+
+/** Writes frames with one gathering write each: header from a reused buffer, payload as is. */
+class FrameWriter(private val channel: GatheringByteChannel) {
+    private val header = ByteBuffer.allocate(4 + Frame.HEADER_BYTES)
+
+    fun write(frame: Frame) {
+        header.clear()
+            .putInt(Frame.HEADER_BYTES + frame.payload.size)
+            .put(frame.type)
+            .putInt(frame.sessionId)
+            .putInt(frame.requestId)
+            .flip()
+        val buffers = arrayOf(header, ByteBuffer.wrap(frame.payload))
+        while (buffers[1].hasRemaining() || header.hasRemaining()) {
+            channel.write(buffers)
+        }
+    }
+}
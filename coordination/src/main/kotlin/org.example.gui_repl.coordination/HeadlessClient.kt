@@ -0,0 +1,122 @@
+package org.example.gui_repl.coordination
+
+import java.io.IOException
+import java.net.SocketAddress
+import java.net.StandardProtocolFamily
+import java.net.UnixDomainSocketAddress
+import java.nio.ByteBuffer
+import java.nio.channels.SocketChannel
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Consumer
+
+/**
+ * Minimal client for [HeadlessServer], for scripts, tests and load generation. Every call only sends
+ * a frame and returns a future, so callers can pipeline as much as they like; one reader thread
+ * routes the answers back by request id.
+ */
+class HeadlessClient private constructor(private val channel: SocketChannel) : AutoCloseable {
+
+    private class Pending(val future: CompletableFuture<Any>, val onOutput: Consumer<String>?) {
+        val output = StringBuilder()
+    }
+
+    private val writer = FrameWriter(channel)
+    private val pending = ConcurrentHashMap<Int, Pending>()
+    private val requestCounter = AtomicInteger(0)
+    private val sessionCounter = AtomicInteger(0)
+    private val reader = Thread.ofVirtual().name("headless-client-reader").start { readFrames() }
+
+    /** A session id, usable right away, and the banner once the interpreter is up. */
+    class OpenedSession(val id: Int, val banner: CompletableFuture<String>)
+
+    /** Opens a session without waiting for it, commands can be pipelined behind the open. */
+    @JvmOverloads
+    fun openSession(config: SessionConfig = SessionConfig.PYTHON): OpenedSession {
+        val sessionId = sessionCounter.incrementAndGet()
+        val banner = send(Frame.open(sessionId, nextRequest(), config), null).thenApply { it as String }
+        return OpenedSession(sessionId, banner)
+    }
+
+    /**
+     * Runs a command, pipelined behind whatever the session is already doing. The future completes
+     * with the full output and the server-side round trip; [onOutput] sees the chunks as they stream in.
+     */
+    @JvmOverloads
+    fun execute(sessionId: Int, command: String, timeoutMillis: Int = 0, onOutput: Consumer<String>? = null): CompletableFuture<CommandResult> =
+        send(Frame.execute(sessionId, nextRequest(), command, timeoutMillis), onOutput)
+            .thenApply { (it as CommandResult).copy(command = command) }
+
+    fun interrupt(sessionId: Int) {
+        synchronized(writer) { writer.write(Frame(FrameType.INTERRUPT, sessionId, nextRequest())) }
+    }
+
+    fun closeSession(sessionId: Int): CompletableFuture<Any> = send(Frame(FrameType.CLOSE, sessionId, nextRequest()), null)
+
+    private fun nextRequest() = requestCounter.incrementAndGet()
+
+    private fun send(frame: Frame, onOutput: Consumer<String>?): CompletableFuture<Any> {
+        val future = CompletableFuture<Any>()
+        pending[frame.requestId] = Pending(future, onOutput)
+        try {
+            synchronized(writer) { writer.write(frame) }
+        } catch (e: IOException) {
+            pending.remove(frame.requestId)
+            future.completeExceptionally(e)
+        }
+        return future
+    }
+
+    private fun readFrames() {
+        val frames = FrameReader(channel)
+        var failure: IOException = IOException("Server closed the connection")
+        try {
+            while (true) {
+                val frame = frames.read() ?: break
+                val request = pending[frame.requestId] ?: continue
+                when (frame.type) {
+                    FrameType.OUTPUT -> {
+                        val text = frame.text()
+                        request.output.append(text)
+                        request.onOutput?.accept(text)
+                    }
+                    FrameType.DONE -> {
+                        pending.remove(frame.requestId)
+                        val nanos = ByteBuffer.wrap(frame.payload).getLong()
+                        request.future.complete(CommandResult("", request.output.toString(), nanos))
+                    }
+                    FrameType.OPENED, FrameType.CLOSED -> {
+                        pending.remove(frame.requestId)
+                        request.future.complete(frame.text())
+                    }
+                    FrameType.ERROR -> {
+                        pending.remove(frame.requestId)
+                        request.future.completeExceptionally(IOException(frame.text()))
+                    }
+                }
+            }
+        } catch (e: IOException) {
+            failure = e
+        }
+        pending.values.forEach { it.future.completeExceptionally(failure) }
+        pending.clear()
+    }
+
+    override fun close() {
+        channel.close()
+        reader.join()
+    }
+
+    companion object {
+        @JvmStatic
+        fun connect(address: SocketAddress): HeadlessClient {
+            val channel = if (address is UnixDomainSocketAddress) {
+                SocketChannel.open(StandardProtocolFamily.UNIX).apply { connect(address) }
+            } else {
+                SocketChannel.open(address)
+            }
+            return HeadlessClient(channel)
+        }
+    }
+}
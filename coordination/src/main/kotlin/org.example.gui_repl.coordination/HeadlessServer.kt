@@ -0,0 +1,288 @@
+package org.example.gui_repl.coordination
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineName
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.launch
+import java.io.IOException
+import java.net.InetSocketAddress
+import java.net.SocketAddress
+import java.net.StandardProtocolFamily
+import java.net.UnixDomainSocketAddress
+import java.nio.ByteBuffer
+import java.nio.channels.ClosedChannelException
+import java.nio.channels.ServerSocketChannel
+import java.nio.channels.SocketChannel
+import java.nio.file.Files
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.milliseconds
+
+/**
+ * Hosts [ReplSessionService] sessions behind the framed protocol in Frames.kt, on a Unix domain
+ * socket or localhost TCP, so scripts and CI can drive interpreters without a display.
+ *
+ * Plain blocking NIO channels, each connection gets a reader and a writer coroutine on virtual
+ * threads; socket channels park a virtual thread instead of pinning its carrier, so connections are
+ * cheap. The interpreters' pipes are not, those reads pin, and they stay on the service's pipe
+ * dispatcher (see [ReplSessionService]). Nothing that blocks on a process may run on our scope, or
+ * the server stalls once the ~256 carriers are pinned. Every session of a connection gets a worker
+ * coroutine that runs its requests in order and streams OUTPUT frames through the connection's
+ * bounded outgoing queue, so a client that stops reading eventually stops the interpreters it's
+ * reading from, not the server. The reading side never waits for a session: a request for a session
+ * with [PIPELINE_DEPTH] requests queued gets an ERROR, and INTERRUPT and CLOSE skip the queue, so a
+ * runaway command can always be stopped.
+ */
+class HeadlessServer @JvmOverloads constructor(
+    private val service: ReplSessionService,
+    private val address: SocketAddress,
+    commandTimeoutMillis: Long = ReplSession.DEFAULT_COMMAND_TIMEOUT.inWholeMilliseconds, // When a request doesn't say
+) : AutoCloseable {
+
+    private val commandTimeout: Duration = commandTimeoutMillis.milliseconds
+    private val dispatcher = ReplSessionService.newVirtualThreadDispatcher()
+    private val scope = CoroutineScope(SupervisorJob() + dispatcher + CoroutineName("headless-server"))
+    private val closed = CountDownLatch(1)
+    private val connections = ConcurrentHashMap.newKeySet<SocketChannel>()
+    private lateinit var serverChannel: ServerSocketChannel
+
+    /** Binds and starts accepting. Returns the bound address, i.e. the real port when asked for port 0. */
+    fun start(): SocketAddress {
+        serverChannel = if (address is UnixDomainSocketAddress) {
+            Files.deleteIfExists(address.path) // Left over from a previous run that didn't clean up
+            ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(address)
+        } else {
+            ServerSocketChannel.open().bind(address)
+        }
+        scope.launch(CoroutineName("headless-accept")) { acceptLoop() }
+        return serverChannel.localAddress
+    }
+
+    private fun acceptLoop() {
+        while (true) {
+            val channel = try {
+                serverChannel.accept() // Parks the virtual thread
+            } catch (e: ClosedChannelException) {
+                return // close()
+            } catch (e: IOException) {
+                System.err.println("Headless server failed to accept: ${e.message}")
+                return
+            }
+            connections.add(channel)
+            scope.launch(CoroutineName("headless-connection")) {
+                try {
+                    Connection(channel).run()
+                } finally {
+                    connections.remove(channel)
+                }
+            }
+        }
+    }
+
+    /** Blocks until [close] is called, for a main() that has nothing else to do. */
+    fun awaitClose() = closed.await()
+
+    override fun close() {
+        if (::serverChannel.isInitialized) {
+            serverChannel.close()
+            (address as? UnixDomainSocketAddress)?.let { Files.deleteIfExists(it.path) }
+        }
+        connections.forEach { it.close() } // Cancelling doesn't unblock a read, closing the channel does
+        scope.cancel()
+        dispatcher.close() // Shuts the executor down, doesn't wait for it
+        closed.countDown()
+    }
+
+    private inner class Connection(private val channel: SocketChannel) {
+        private val outgoing = Channel<Frame>(OUTGOING_CAPACITY)
+        private val workers = HashMap<Int, SessionWorker>() // Open sessions by id, only touched by the reading coroutine
+        private val allWorkers = ConcurrentHashMap.newKeySet<SessionWorker>() // Including closing ones, stopped when the client goes away
+
+        suspend fun run() = coroutineScope {
+            launch(CoroutineName("headless-writer")) { writeFrames() }
+            try {
+                val reader = FrameReader(channel)
+                while (true) {
+                    val frame = reader.read() ?: break
+                    dispatch(this, frame)
+                }
+            } catch (e: IOException) {
+                System.err.println("Headless connection dropped: ${e.message}")
+            } finally {
+                allWorkers.forEach { it.stop() }
+                outgoing.close() // The writer sends what's left, then we're done
+            }
+        }
+
+        private suspend fun writeFrames() {
+            val writer = FrameWriter(channel)
+            try {
+                for (frame in outgoing) {
+                    writer.write(frame)
+                }
+            } catch (e: IOException) {
+                outgoing.cancel() // Client is gone, fail whoever is still sending
+            } finally {
+                channel.close()
+            }
+        }
+
+        private suspend fun dispatch(connectionScope: CoroutineScope, frame: Frame) {
+            when (frame.type) {
+                FrameType.OPEN -> {
+                    if (workers.containsKey(frame.sessionId)) {
+                        reply(frame, FrameType.ERROR, "Session ${frame.sessionId} is already open")
+                        return
+                    }
+                    val config = try {
+                        Frame.parseConfig(frame)
+                    } catch (e: IllegalArgumentException) {
+                        reply(frame, FrameType.ERROR, e.message ?: "Bad OPEN")
+                        return
+                    }
+                    val worker = SessionWorker(connectionScope, frame, config)
+                    workers[frame.sessionId] = worker
+                    allWorkers.add(worker)
+                }
+                FrameType.EXECUTE -> {
+                    val worker = workers[frame.sessionId]
+                    if (worker == null) {
+                        reply(frame, FrameType.ERROR, "No session ${frame.sessionId}")
+                    } else if (!worker.requests.trySend(frame).isSuccess) {
+                        // Waiting here would hold up every other frame, the INTERRUPT for this session too
+                        reply(frame, FrameType.ERROR, "Session ${frame.sessionId} busy: $PIPELINE_DEPTH requests queued")
+                    }
+                }
+                FrameType.CLOSE -> {
+                    val worker = workers.remove(frame.sessionId) // The id can be reused right away
+                    if (worker == null) {
+                        reply(frame, FrameType.ERROR, "No session ${frame.sessionId}")
+                    } else if (!worker.requests.trySend(frame).isSuccess) {
+                        worker.closeNow(connectionScope, frame) // After its queue would take too long, if it ever gets there
+                    }
+                }
+                FrameType.INTERRUPT -> workers[frame.sessionId]?.session?.interrupt()
+                else -> reply(frame, FrameType.ERROR, "Unknown frame type ${frame.type}")
+            }
+        }
+
+        private suspend fun reply(request: Frame, type: Byte, text: String = "") {
+            outgoing.send(Frame.text(type, request.sessionId, request.requestId, text))
+        }
+
+        // One per open session: opens it, then runs its requests one after another
+        private inner class SessionWorker(scope: CoroutineScope, open: Frame, config: SessionConfig) {
+            val requests = Channel<Frame>(PIPELINE_DEPTH)
+            @Volatile var session: ReplSession? = null
+            @Volatile private var running: Frame? = null // The request being executed, for closeNow
+            private val job: Job = scope.launch(CoroutineName("headless-session-${open.sessionId}")) {
+                try {
+                    runSession(open, config)
+                } finally {
+                    allWorkers.remove(this@SessionWorker)
+                }
+            }
+
+            private suspend fun runSession(open: Frame, config: SessionConfig) {
+                try {
+                    val opened = service.openSession(config)
+                    session = opened
+                    reply(open, FrameType.OPENED, opened.banner)
+                } catch (e: CancellationException) {
+                    throw e
+                } catch (e: Exception) {
+                    reply(open, FrameType.ERROR, "Failed to start ${config.command}: ${e.message}")
+                }
+                for (request in requests) {
+                    val current = session
+                    when {
+                        request.type == FrameType.CLOSE -> {
+                            current?.close()
+                            reply(request, FrameType.CLOSED)
+                            return
+                        }
+                        current == null -> reply(request, FrameType.ERROR, "Session ${request.sessionId} failed to open")
+                        else -> {
+                            running = request
+                            execute(current, request)
+                            running = null
+                        }
+                    }
+                }
+            }
+
+            private suspend fun execute(session: ReplSession, request: Frame) {
+                val start = System.nanoTime()
+                try {
+                    if (request.payload.size < 4) throw IllegalArgumentException("EXECUTE payload too short")
+                    val timeoutMillis = ByteBuffer.wrap(request.payload).getInt()
+                    val command = String(request.payload, 4, request.payload.size - 4, Charsets.UTF_8)
+                    val timeout = if (timeoutMillis > 0) timeoutMillis.milliseconds else commandTimeout
+                    session.execute(command, timeout).collect { chunk ->
+                        reply(request, FrameType.OUTPUT, chunk)
+                    }
+                    outgoing.send(Frame(FrameType.DONE, request.sessionId, request.requestId,
+                        ByteBuffer.allocate(8).putLong(System.nanoTime() - start).array()))
+                } catch (e: CancellationException) {
+                    throw e
+                } catch (e: Exception) {
+                    reply(request, FrameType.ERROR, e.message ?: e.toString())
+                }
+            }
+
+            fun stop() {
+                job.cancel()
+                session?.close()
+            }
+
+            // CLOSE that didn't fit in the queue: stops the session where it is, and what it didn't get
+            // to (the running request included) is answered with an ERROR before the CLOSED
+            fun closeNow(connectionScope: CoroutineScope, close: Frame) {
+                connectionScope.launch(CoroutineName("headless-close-${close.sessionId}")) {
+                    job.cancel()
+                    session?.close()
+                    job.join()
+                    val skipped = listOfNotNull(running) + generateSequence { requests.tryReceive().getOrNull() }
+                    for (request in skipped) {
+                        reply(request, FrameType.ERROR, "Session ${close.sessionId} was closed first")
+                    }
+                    reply(close, FrameType.CLOSED)
+                }
+            }
+        }
+    }
+
+    companion object {
+        const val OUTGOING_CAPACITY = 256 // Frames queued per connection before output producers wait
+        const val PIPELINE_DEPTH = 1024   // Requests queued per session, more get a "busy" ERROR
+    }
+}
+
+/**
+ * Headless entry point: `--unix <path>` or `--tcp <port>` (localhost only, 0 picks a free port).
+ * Prints the address it listens on and runs until killed.
+ */
+fun main(args: Array<String>) {
+    val address: SocketAddress = when (args.getOrNull(0)) {
+        "--unix" -> UnixDomainSocketAddress.of(args.getOrElse(1) { "gui-repl.sock" })
+        "--tcp", null -> InetSocketAddress("127.0.0.1", args.getOrNull(1)?.toInt() ?: 0)
+        else -> {
+            System.err.println("Usage: HeadlessServer [--unix <path> | --tcp <port>]")
+            return
+        }
+    }
+    val service = ReplSessionService()
+    val server = HeadlessServer(service, address)
+    println("Headless REPL server listening on ${server.start()}")
+    Runtime.getRuntime().addShutdownHook(Thread {
+        server.close()
+        service.close()
+    })
+    server.awaitClose()
+}
@@ -0,0 +1,233 @@
+package org.example.gui_repl.coordination
+
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineName
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.TimeoutCancellationException
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.future.future
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import kotlinx.coroutines.withTimeout
+import org.example.gui_repl.common.PromptScanner
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.nio.CharBuffer
+import java.nio.charset.CodingErrorAction
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeoutException
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.milliseconds
+import kotlin.time.Duration.Companion.seconds
+
+/** What a command printed before the interpreter came back to a prompt. */
+data class CommandResult(val command: String, val output: String, val roundTripNanos: Long) {
+    val roundTripMillis: Double get() = roundTripNanos / 1_000_000.0
+}
+
+/**
+ * One interpreter process, owned by a single reader coroutine. The reader turns the raw output into
+ * text and prompt events and hands them over through a bounded channel, so when nobody consumes them
+ * the reader suspends, stops reading the pipe, and the interpreter blocks on its next write.
+ *
+ * Commands run one at a time; [execute] streams what a command prints until its prompt.
+ */
+class ReplSession internal constructor(
+    val id: String,
+    val config: SessionConfig,
+    val process: Process,
+    private val input: InputStream,
+    private val scope: CoroutineScope,
+    private val dispatcher: CoroutineDispatcher,
+    private val pipeDispatcher: CoroutineDispatcher,
+    outputCapacity: Int,
+    private val onClosed: (ReplSession) -> Unit,
+) {
+    private sealed interface Event {
+        class Output(val text: String) : Event
+        class Prompt(val prompt: String) : Event
+    }
+
+    private val events = Channel<Event>(outputCapacity)
+    private val commandLock = Mutex()
+    private val stdin: OutputStream = process.outputStream
+    private var owedPrompts = 0 // Prompts of cancelled commands nobody has read yet, guarded by commandLock
+    private lateinit var reader: Job
+
+    /** Everything the interpreter printed before its first prompt. */
+    var banner: String = ""
+        private set
+
+    val isAlive: Boolean get() = process.isAlive
+
+    internal suspend fun start(startTimeout: Duration) {
+        reader = scope.launch(pipeDispatcher + CoroutineName("repl-reader-$id")) { readOutput() }
+        val startup = StringBuilder()
+        commandLock.withLock {
+            withTimeout(startTimeout) {
+                while (true) {
+                    when (val event = events.receive()) {
+                        is Event.Output -> startup.append(event.text)
+                        is Event.Prompt -> break
+                    }
+                }
+            }
+        }
+        banner = startup.toString()
+    }
+
+    // The one coroutine this session costs. Blocking reads hold a pipe thread, suspending on a full channel lets it go.
+    private suspend fun readOutput() {
+        val scanner = PromptScanner(*config.prompts.toTypedArray())
+        val decoder = Utf8Decoder()
+        val buf = ByteArray(8192)
+        var failure: Throwable? = null
+        try {
+            while (true) {
+                val n = input.read(buf)
+                if (n == -1) break
+                var pos = 0
+                while (pos < n) {
+                    val promptEnd = scanner.scan(buf, pos, n - pos)
+                    if (promptEnd < 0) {
+                        decoder.decode(buf, pos, n - pos)?.let { events.send(Event.Output(it)) }
+                        break
+                    }
+                    // The head of a prompt split across two reads was already sent as output, that's harmless
+                    val prompt = scanner.getLastPrompt()
+                    val promptStart = maxOf(pos, promptEnd - scanner.getPromptLength(prompt))
+                    decoder.decode(buf, pos, promptStart - pos)?.let { events.send(Event.Output(it)) }
+                    decoder.decode(buf, promptStart, promptEnd - promptStart) // Keep the decoder in sync, drop the prompt
+                    events.send(Event.Prompt(config.prompts[prompt]))
+                    pos = promptEnd
+                }
+            }
+        } catch (e: IOException) {
+            failure = e
+        } finally {
+            events.close(failure ?: IOException("${config.command} ($id) exited"))
+            onClosed(this)
+        }
+    }
+
+    /**
+     * Sends the command and streams its output until the interpreter is back at a prompt.
+     * Nothing is sent until the flow is collected, and output is only read as fast as it's collected.
+     *
+     * The timeout covers waiting for this session, the command and the collector. If the command times
+     * out or the collector cancels, the interpreter gets a SIGINT and the next command skips whatever
+     * was still on its way from this one.
+     */
+    fun execute(command: String, timeout: Duration = DEFAULT_COMMAND_TIMEOUT): Flow<String> = flow {
+        commandLock.withLock {
+            // The interpreter answers every line with a prompt ("... " while a block is open), so a
+            // multi-line command is done after as many prompts as it has lines
+            var promptsLeft = 0
+            try {
+                withTimeout(timeout) {
+                    skipOwedOutput()
+                    val lines = command.count { it == '\n' } + 1
+                    withContext(pipeDispatcher) {
+                        // Owed from the moment the interpreter may have the command. Not after the block: a
+                        // cancellation as withContext returns would drop them while they're still coming.
+                        promptsLeft = lines
+                        stdin.write((command + "\n").toByteArray())
+                        stdin.flush()
+                    }
+                    while (promptsLeft > 0) {
+                        when (val event = events.receive()) {
+                            is Event.Output -> emit(event.text)
+                            is Event.Prompt -> promptsLeft--
+                        }
+                    }
+                }
+            } catch (e: TimeoutCancellationException) {
+                // A plain failure for our callers, not a cancellation of whatever coroutine is collecting
+                throw TimeoutException("No response to '$command' after $timeout")
+            } finally {
+                if (promptsLeft > 0) {
+                    owedPrompts += promptsLeft
+                    interrupt()
+                }
+            }
+        }
+    }
+
+    /** Runs the command and collects its output. */
+    suspend fun executeCommand(command: String, timeout: Duration = DEFAULT_COMMAND_TIMEOUT): CommandResult {
+        val start = System.nanoTime()
+        val output = StringBuilder()
+        execute(command, timeout).collect { output.append(it) }
+        return CommandResult(command, output.toString(), System.nanoTime() - start)
+    }
+
+    /** [executeCommand] for Java callers. Cancelling the future cancels the command. */
+    fun executeAsync(command: String, timeoutMillis: Long): CompletableFuture<CommandResult> =
+        scope.future(dispatcher) { executeCommand(command, timeoutMillis.milliseconds) }
+
+    // Output and prompts of commands that timed out or were cancelled, they aren't ours
+    private suspend fun skipOwedOutput() {
+        while (owedPrompts > 0) {
+            if (events.receive() is Event.Prompt) {
+                owedPrompts--
+            }
+        }
+    }
+
+    /** SIGINT, like Ctrl+C in a terminal: interrupts the running command, the session survives. */
+    fun interrupt() {
+        if (!process.isAlive) return
+        scope.launch(dispatcher) {
+            try {
+                ProcessBuilder("kill", "-INT", process.pid().toString()).start().waitFor()
+            } catch (e: IOException) {
+                System.err.println("Failed to interrupt $id: ${e.message}")
+            }
+        }
+    }
+
+    /** Kills the interpreter; commands still waiting fail with the IOException the reader closed with. */
+    fun close() {
+        process.destroy()
+        if (::reader.isInitialized) {
+            reader.cancel() // The read itself returns once the process is gone
+        }
+    }
+
+    // Incremental UTF-8: a multi-byte character split across two reads is carried over, not mangled
+    private class Utf8Decoder {
+        private val decoder = Charsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE)
+        private var pending = ByteBuffer.allocate(8192)
+        private val chars = CharBuffer.allocate(8192)
+
+        fun decode(buf: ByteArray, offset: Int, length: Int): String? {
+            if (length <= 0) return null
+            if (pending.remaining() < length) {
+                pending = ByteBuffer.allocate(pending.position() + length).put(pending.flip())
+            }
+            pending.put(buf, offset, length).flip()
+            val text = StringBuilder()
+            while (true) {
+                chars.clear()
+                val result = decoder.decode(pending, chars, false)
+                text.append(chars.flip())
+                if (!result.isOverflow) break
+            }
+            pending.compact()
+            return if (text.isEmpty()) null else text.toString()
+        }
+    }
+
+    companion object {
+        val DEFAULT_COMMAND_TIMEOUT = 10.seconds
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.gui_repl.coordination
+
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineName
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.ExecutorCoroutineDispatcher
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.future.future
+import kotlinx.coroutines.withContext
+import java.io.ByteArrayInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.SequenceInputStream
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.seconds
+
+/**
+ * Owns interpreter processes so the UI doesn't have to. Each session is one reader coroutine plus
+ * whatever command is running. Commands suspend and run on [dispatcher] (virtual threads by default).
+ * The pipes don't: a blocking read or write on a process pipe pins a virtual thread's carrier on
+ * JDK 21, and the carrier pool tops out at 256, so that many idle sessions would starve everything
+ * else. Reads and stdin writes run on [pipeDispatcher] instead, a daemon platform thread per session
+ * with a small stack, which is what an idle session really costs.
+ *
+ * Blocking callers (Java, the FX thread) use the *Async variants, which return CompletableFutures.
+ */
+class ReplSessionService(
+    private val dispatcher: CoroutineDispatcher = newVirtualThreadDispatcher(),
+    private val pipeDispatcher: CoroutineDispatcher = newPipeDispatcher(),
+    private val outputCapacity: Int = DEFAULT_OUTPUT_CAPACITY,
+) : AutoCloseable {
+
+    private val scope = CoroutineScope(SupervisorJob() + dispatcher + CoroutineName("repl-sessions"))
+    private val sessions = ConcurrentHashMap<String, ReplSession>()
+    private val sessionCounter = AtomicInteger(0)
+
+    /** Starts an interpreter and returns once it printed its first prompt. */
+    suspend fun openSession(config: SessionConfig, startTimeout: Duration = DEFAULT_START_TIMEOUT): ReplSession {
+        val process = withContext(dispatcher) {
+            ProcessBuilder(config.commandLine()).redirectErrorStream(true).start()
+        }
+        return register(config, process, process.inputStream, startTimeout)
+    }
+
+    /**
+     * Takes over an interpreter somebody else started, e.g. a pre-warmed one. [startupOutput] is what
+     * it printed so far (banner and first prompt), it's replayed before the live output.
+     */
+    suspend fun adoptSession(
+        config: SessionConfig,
+        process: Process,
+        startupOutput: ByteArray,
+        startTimeout: Duration = DEFAULT_START_TIMEOUT,
+    ): ReplSession {
+        val input = SequenceInputStream(ByteArrayInputStream(startupOutput), process.inputStream)
+        return register(config, process, input, startTimeout)
+    }
+
+    fun openSessionAsync(config: SessionConfig): CompletableFuture<ReplSession> =
+        scope.future { openSession(config) }
+
+    private suspend fun register(config: SessionConfig, process: Process, input: InputStream, startTimeout: Duration): ReplSession {
+        val id = "${config.command}-${sessionCounter.incrementAndGet()}"
+        val session = ReplSession(id, config, process, input, scope, dispatcher, pipeDispatcher, outputCapacity) { sessions.remove(it.id) }
+        sessions[id] = session
+        try {
+            session.start(startTimeout)
+        } catch (e: Throwable) {
+            session.close()
+            sessions.remove(id)
+            throw if (e is IOException) e else IOException("${config.command} didn't reach its first prompt: ${e.message}", e)
+        }
+        return session
+    }
+
+    fun getSession(id: String): ReplSession? = sessions[id]
+
+    fun getSessions(): Collection<ReplSession> = sessions.values.toList()
+
+    /** Kills every session and stops the dispatchers. */
+    override fun close() {
+        sessions.values.forEach { it.close() }
+        scope.cancel()
+        (dispatcher as? ExecutorCoroutineDispatcher)?.close()
+        (pipeDispatcher as? ExecutorCoroutineDispatcher)?.close()
+    }
+
+    companion object {
+        const val DEFAULT_OUTPUT_CAPACITY = 64 // Chunks of up to 8 KB buffered per session before the reader waits
+        val DEFAULT_START_TIMEOUT = 30.seconds
+
+        @JvmStatic
+        fun newVirtualThreadDispatcher(): ExecutorCoroutineDispatcher =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("repl-coroutine-", 0).factory())
+                .asCoroutineDispatcher()
+
+        /** For blocking pipe I/O, one thread per blocked read. Not bounded: a bounded pool would leave readers unstarted. */
+        @JvmStatic
+        fun newPipeDispatcher(): ExecutorCoroutineDispatcher =
+            Executors.newCachedThreadPool(
+                Thread.ofPlatform().name("repl-pipe-", 0).daemon().stackSize(PIPE_THREAD_STACK_BYTES).factory()
+            ).asCoroutineDispatcher()
+
+        private const val PIPE_THREAD_STACK_BYTES = 256L * 1024 // The read loop is shallow
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.gui_repl.coordination
+
+/**
+ * How to start an interpreter and what its prompts look like. Prompts are matched literally,
+ * byte by byte, at the start of a line (see PromptScanner).
+ */
+data class SessionConfig(
+    val command: String,
+    val args: List<String> = emptyList(),
+    val prompts: List<String>,
+) {
+    fun commandLine(): List<String> = listOf(command) + args
+
+    companion object {
+        // -i forces interactive mode on a pipe, -u so output isn't stuck in Python's buffers
+        @JvmField
+        val PYTHON = SessionConfig("python", listOf("-i", "-u"), listOf(">>> ", "... "))
+    }
+}
@@ -0,0 +1,28 @@
+plugins {
+    java
+    id("me.champeau.jmh")
+}
+
+repositories {
+    mavenCentral()
+    maven("https://repo.clojars.org/")
+}
+
+dependencies {
+    // What the benchmarks exercise: prompt scanning, the session service and the backend's limits
+    jmh(project(":common"))
+    jmh(project(":coordination"))
+    jmh(project(":backend"))
+    jmh("org.clojure:clojure:1.11.1")
+    jmh("org.jetbrains.kotlinx:kotlinx-coroutines-core:1.7.3")
+}
+
+// ./gradlew :jmh:jmh, or -PjmhInclude=RoundTrip to run only matching benchmarks
+jmh {
+    jmhVersion.set("1.37")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON") // build/results/jmh/results.json, to compare runs across changes
+    providers.gradleProperty("jmhInclude").orNull?.let { includes.set(listOf(it)) }
+}
@@ -0,0 +1,102 @@
+// FakeInterpreter.java
+package org.example.gui_repl.jmh;
+
+import org.example.gui_repl.coordination.SessionConfig;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in for a real interpreter, so benchmark numbers depend on our code and not on whatever
+ * Python happens to be installed. Talks like python -i on a pipe: a banner, then ">>> " without a
+ * newline, one prompt per line of input.
+ *
+ *   emit N   prints N lines of --line-width characters each
+ *   exit     quits
+ *   anything else is echoed back
+ *
+ * Output is identical on every run for the same arguments.
+ */
+public class FakeInterpreter {
+
+    public static final String PROMPT = ">>> ";
+
+    public static void main(String[] args) throws IOException {
+        int bannerLines = 2;
+        int lineWidth = 80;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--banner-lines" -> bannerLines = Integer.parseInt(args[i + 1]);
+                case "--line-width" -> lineWidth = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        OutputStream out = new BufferedOutputStream(System.out, 64 * 1024);
+        byte[] line = outputLine(lineWidth);
+        for (int i = 0; i < bannerLines; i++) {
+            out.write(("Fake interpreter, banner line " + i + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        prompt(out);
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String command;
+        while ((command = in.readLine()) != null) {
+            if (command.equals("exit")) {
+                break;
+            } else if (command.startsWith("emit ")) {
+                int lines = Integer.parseInt(command.substring(5).trim());
+                for (int i = 0; i < lines; i++) {
+                    out.write(line);
+                }
+            } else if (!command.isEmpty()) {
+                out.write((command + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            prompt(out);
+        }
+        out.flush();
+    }
+
+    private static void prompt(OutputStream out) throws IOException {
+        out.write(PROMPT.getBytes(StandardCharsets.UTF_8));
+        out.flush(); // The prompt is what the other side waits for
+    }
+
+    // Same characters every time, ending in a newline
+    static byte[] outputLine(int width) {
+        byte[] line = new byte[width + 1];
+        for (int i = 0; i < width; i++) {
+            line[i] = (byte) ('a' + i % 26);
+        }
+        line[width] = '\n';
+        return line;
+    }
+
+    /**
+     * The same protocol (echo only) as a shell loop, for measuring what starting a session costs us
+     * without a JVM boot drowning it out.
+     */
+    public static SessionConfig shellConfig() {
+        String script = "printf 'Fake interpreter\\n" + PROMPT + "'; "
+                + "while IFS= read -r line; do [ -n \"$line\" ] && echo \"$line\"; printf '" + PROMPT + "'; done";
+        return new SessionConfig("sh", List.of("-c", script), List.of(PROMPT));
+    }
+
+    /** Runs us in a fresh JVM with the benchmark's own classpath. */
+    public static SessionConfig config(int bannerLines, int lineWidth) {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<String> args = new ArrayList<>(List.of(
+                "-Xshare:auto", "-XX:TieredStopAtLevel=1", // Start fast, this isn't what we're measuring
+                "-cp", System.getProperty("java.class.path"),
+                FakeInterpreter.class.getName(),
+                "--banner-lines", Integer.toString(bannerLines),
+                "--line-width", Integer.toString(lineWidth)));
+        return new SessionConfig(java, args, List.of(PROMPT));
+    }
+}
@@ -0,0 +1,83 @@
+// OutputSearchBenchmark.java
+package org.example.gui_repl.jmh;
+
+import org.example.gui_repl.common.TrigramIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One Find keystroke over a million lines of output: the trigram index's candidates, a page at a
+ * time, checked line by line (what ReplProcessController.find does, up to 500 hits), against
+ * scanning every line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OutputSearchBenchmark {
+
+    private static final int LINES = 1_000_000;
+    private static final int LIMIT = 500;
+    private static final String[] WORDS = {"value", "result", "Traceback", "error", "compute", "print", "data", "row", "NameError: name"};
+
+    @Param({"nameerror: name 4242", "traceback", "123456"})
+    public String query;
+
+    private final List<String> lines = new ArrayList<>(LINES);
+    private TrigramIndex index;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        index = new TrigramIndex(Long.MAX_VALUE);
+        Random random = new Random(42);
+        StringBuilder chunk = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            String line = WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(1_000_000) + " " + WORDS[random.nextInt(WORDS.length)];
+            lines.add(line);
+            chunk.append(line).append('\n');
+            if (chunk.length() > 64 * 1024) {
+                index.append(chunk);
+                chunk.setLength(0);
+            }
+        }
+        index.append(chunk);
+        while (index.getLineCount() < LINES) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Benchmark
+    public int indexed() {
+        String needle = TrigramIndex.fold(query);
+        int hits = 0;
+        int[] blocks;
+        int before = Integer.MAX_VALUE;
+        while ((blocks = index.candidateBlocks(query, before, 64)).length > 0) {
+            for (int block : blocks) {
+                int first = block * TrigramIndex.BLOCK_LINES;
+                for (int line = Math.min(LINES, first + TrigramIndex.BLOCK_LINES) - 1; line >= first; line--) {
+                    if (TrigramIndex.fold(lines.get(line)).contains(needle) && ++hits == LIMIT) {
+                        return hits;
+                    }
+                }
+            }
+            before = blocks[blocks.length - 1];
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int linearScan() {
+        String needle = TrigramIndex.fold(query);
+        int hits = 0;
+        for (int line = LINES - 1; line >= 0; line--) {
+            if (TrigramIndex.fold(lines.get(line)).contains(needle) && ++hits == LIMIT) {
+                return hits;
+            }
+        }
+        return hits;
+    }
+}
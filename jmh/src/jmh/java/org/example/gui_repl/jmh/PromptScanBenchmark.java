@@ -0,0 +1,85 @@
+// PromptScanBenchmark.java
+package org.example.gui_repl.jmh;
+
+import org.example.gui_repl.common.PromptScanner;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Output reading and prompt matching without a process in the way: the same interpreter output,
+ * once through PromptScanner on raw chunks (what the readers do now) and once through readLine plus
+ * a regex per line (what the first version of ReplProcessController did).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PromptScanBenchmark {
+
+    private static final Pattern PROMPT_LINE = Pattern.compile("^(>>> |\\.\\.\\. )");
+
+    @Param({"512", "8192"})
+    public int chunkSize;
+
+    @Param({"1", "100"})
+    public int linesPerPrompt; // 1: chatty REPL session, 100: a command dumping output
+
+    private byte[] output; // About 1 MB of output with prompts in between
+    private PromptScanner scanner;
+
+    @Setup
+    public void setup() {
+        byte[] line = FakeInterpreter.outputLine(80);
+        byte[] prompt = FakeInterpreter.PROMPT.getBytes(StandardCharsets.UTF_8);
+        int lines = 1024 * 1024 / line.length;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int i = 1; i <= lines; i++) {
+            bytes.writeBytes(line);
+            if (i % linesPerPrompt == 0) {
+                bytes.writeBytes(prompt);
+            }
+        }
+        output = bytes.toByteArray();
+        scanner = new PromptScanner(">>> ", "... ");
+    }
+
+    @Benchmark
+    public int promptScanner() {
+        scanner.reset();
+        int prompts = 0;
+        for (int chunk = 0; chunk < output.length; chunk += chunkSize) {
+            int end = Math.min(output.length, chunk + chunkSize);
+            int pos = chunk;
+            while (pos < end) {
+                int promptEnd = scanner.scan(output, pos, end - pos);
+                if (promptEnd < 0) {
+                    break;
+                }
+                prompts++;
+                pos = promptEnd;
+            }
+        }
+        return prompts;
+    }
+
+    @Benchmark
+    public int readLineRegex() throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(output), StandardCharsets.UTF_8), chunkSize);
+        int prompts = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (PROMPT_LINE.matcher(line).find()) {
+                prompts++;
+            }
+        }
+        return prompts;
+    }
+}
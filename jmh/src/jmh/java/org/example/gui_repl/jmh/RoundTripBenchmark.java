@@ -0,0 +1,46 @@
+// RoundTripBenchmark.java
+package org.example.gui_repl.jmh;
+
+import org.example.gui_repl.coordination.CommandResult;
+import org.example.gui_repl.coordination.ReplSession;
+import org.example.gui_repl.coordination.ReplSessionService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command round trip through the session service against FakeInterpreter: write the command,
+ * read and decode everything it prints, stop at the prompt. With 0 lines it's pure latency,
+ * with more it's output reading throughput through the whole pipe.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoundTripBenchmark {
+
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    @Param({"0", "100", "10000"})
+    public int outputLines;
+
+    private ReplSessionService service;
+    private ReplSession session;
+    private String command;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        service = new ReplSessionService();
+        session = service.openSessionAsync(FakeInterpreter.config(2, 80)).get();
+        command = outputLines == 0 ? "ping" : "emit " + outputLines;
+    }
+
+    @Benchmark
+    public CommandResult roundTrip() throws Exception {
+        return session.executeAsync(command, TIMEOUT_MILLIS).get();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+}
@@ -0,0 +1,47 @@
+// SessionStartupBenchmark.java
+package org.example.gui_repl.jmh;
+
+import org.example.gui_repl.coordination.ReplSession;
+import org.example.gui_repl.coordination.ReplSessionService;
+import org.example.gui_repl.coordination.SessionConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * From asking for a session to its first prompt: process start, reader coroutine, banner and prompt
+ * detection. The shell stand-in shows our own overhead, the JVM one what a heavyweight interpreter
+ * boot looks like next to it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SessionStartupBenchmark {
+
+    @Param({"shell", "jvm"})
+    public String interpreter;
+
+    private ReplSessionService service;
+    private SessionConfig config;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        service = new ReplSessionService();
+        config = interpreter.equals("shell") ? FakeInterpreter.shellConfig() : FakeInterpreter.config(2, 80);
+    }
+
+    @Benchmark
+    public String openSession() throws Exception {
+        ReplSession session = service.openSessionAsync(config).get();
+        session.close();
+        session.getProcess().waitFor(); // Don't let dying sessions pile up and skew the next sample
+        return session.getBanner();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+}
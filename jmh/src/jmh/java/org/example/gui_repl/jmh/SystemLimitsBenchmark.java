@@ -0,0 +1,97 @@
+// SystemLimitsBenchmark.java
+package org.example.gui_repl.jmh;
+
+import clojure.java.api.Clojure;
+import clojure.lang.IFn;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The backend's limit calculations (system.clj), called the way the UI calls them. The MXBean read
+ * is there as the baseline for what the cached snapshot saves on every admission check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SystemLimitsBenchmark {
+
+    private static final String SYSTEM_NS = "org.example.gui-repl.backend.system";
+
+    private IFn runtimeInfo;
+    private IFn defaultSessionLimits;
+    private IFn adaptiveLimits;
+    private IFn loadFactor;
+    private IFn currentSystemLoad;
+    private IFn loadSnapshot;
+    private IFn canCreateSession;
+    private IFn stopSampling;
+
+    private Object info;
+    private Object baseLimits;
+    private Object load;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        Clojure.var("clojure.core", "require").invoke(Clojure.read(SYSTEM_NS));
+        runtimeInfo = Clojure.var(SYSTEM_NS, "get-runtime-info");
+        defaultSessionLimits = Clojure.var(SYSTEM_NS, "calculate-default-session-limits");
+        adaptiveLimits = Clojure.var(SYSTEM_NS, "calculate-adaptive-limits");
+        loadFactor = Clojure.var(SYSTEM_NS, "calculate-load-factor");
+        currentSystemLoad = Clojure.var(SYSTEM_NS, "get-current-system-load");
+        loadSnapshot = Clojure.var(SYSTEM_NS, "get-load-snapshot");
+        canCreateSession = Clojure.var(SYSTEM_NS, "can-create-session?");
+        stopSampling = Clojure.var(SYSTEM_NS, "stop-load-sampling!");
+
+        Clojure.var(SYSTEM_NS, "initialize-system-limits!").invoke();
+        // Until the sampler's first sample the snapshot falls back to the MXBean, which is what we compare against
+        IFn loadHistory = Clojure.var(SYSTEM_NS, "get-load-history");
+        while (((Collection<?>) loadHistory.invoke()).isEmpty()) {
+            Thread.sleep(100);
+        }
+        info = runtimeInfo.invoke();
+        baseLimits = defaultSessionLimits.invoke(info);
+        load = loadSnapshot.invoke();
+    }
+
+    @Benchmark
+    public Object runtimeInfo() {
+        return runtimeInfo.invoke();
+    }
+
+    @Benchmark
+    public Object defaultSessionLimits() {
+        return defaultSessionLimits.invoke(info);
+    }
+
+    @Benchmark
+    public Object adaptiveLimits() {
+        return adaptiveLimits.invoke(baseLimits);
+    }
+
+    @Benchmark
+    public Object loadFactor() {
+        return loadFactor.invoke(load);
+    }
+
+    @Benchmark
+    public Object canCreateSession() {
+        return canCreateSession.invoke(1);
+    }
+
+    @Benchmark
+    public Object loadSnapshot() {
+        return loadSnapshot.invoke();
+    }
+
+    @Benchmark
+    public Object currentSystemLoadFromMxBean() {
+        return currentSystemLoad.invoke();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stopSampling.invoke();
+    }
+}
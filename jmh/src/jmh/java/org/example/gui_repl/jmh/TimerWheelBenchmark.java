@@ -0,0 +1,67 @@
+// TimerWheelBenchmark.java
+package org.example.gui_repl.jmh;
+
+import org.example.gui_repl.common.HashedWheelTimer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a command deadline costs: schedule one and cancel it again, which is the life of almost every
+ * deadline (the prompt beats the timeout). With thousands of other commands in flight, once on the
+ * timer wheel and once on a ScheduledThreadPoolExecutor (what SessionRuntime used before).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimerWheelBenchmark {
+
+    private static final Runnable NOTHING = () -> { };
+    private static final long BACKLOG_DELAY_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Param({"0", "10000"})
+    public int inFlight;
+
+    private HashedWheelTimer wheel;
+    private ScheduledThreadPoolExecutor scheduler;
+    private final List<HashedWheelTimer.Timeout> wheelBacklog = new ArrayList<>();
+    private final List<ScheduledFuture<?>> schedulerBacklog = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        wheel = new HashedWheelTimer("bench-wheel", HashedWheelTimer.DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS,
+                HashedWheelTimer.DEFAULT_WHEEL_SIZE);
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true); // Otherwise cancelled deadlines pile up until they're due
+        for (int i = 0; i < inFlight; i++) {
+            // Spread out, and far enough that none of them fire during the run: a default run (3 warmup
+            // and 5 measured iterations of 10 s) takes well over a minute, a 10 s backlog was gone after one iteration
+            long delay = BACKLOG_DELAY_MILLIS + i;
+            wheelBacklog.add(wheel.schedule(NOTHING, delay, TimeUnit.MILLISECONDS));
+            schedulerBacklog.add(scheduler.schedule(NOTHING, delay, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (wheel.getPendingTimeouts() < inFlight) {
+            System.err.println("Backlog fired during the run, inFlight=" + inFlight + " measured a partly empty wheel");
+        }
+        wheel.stop();
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean wheelScheduleCancel() {
+        return wheel.schedule(NOTHING, 10, TimeUnit.SECONDS).cancel();
+    }
+
+    @Benchmark
+    public boolean schedulerScheduleCancel() {
+        return scheduler.schedule(NOTHING, 10, TimeUnit.SECONDS).cancel(false);
+    }
+}
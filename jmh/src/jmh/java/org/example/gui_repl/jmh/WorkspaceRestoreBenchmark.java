@@ -0,0 +1,85 @@
+// WorkspaceRestoreBenchmark.java
+package org.example.gui_repl.jmh;
+
+import org.example.gui_repl.common.Session;
+import org.example.gui_repl.common.Workspace;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reopening a workspace of 30 sessions with a few MB of history each. openWorkspace is what the app
+ * does at startup (metadata only, plus the journal index to count lines), restoreAllWindows is the
+ * worst case of every tab being selected once: each also reads the last 2000 lines of its journal.
+ * Both include closing the workspace again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WorkspaceRestoreBenchmark {
+
+    private static final int SESSIONS = 30;
+    private static final int WINDOW_LINES = 2000;
+
+    @Param({"4"})
+    public int megabytesPerSession;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("workspace-bench");
+        Workspace workspace = Workspace.open(directory);
+        for (int s = 0; s < SESSIONS; s++) {
+            Session session = workspace.create("REPL-" + (s + 1), "python", List.of("-i", "-u"), List.of(">>> ", "... "));
+            long written = 0;
+            for (int command = 0; written < megabytesPerSession * 1_000_000L; command++) {
+                session.appendInput("print_rows(" + command + ")");
+                StringBuilder output = new StringBuilder();
+                for (int row = 0; row < 40; row++) {
+                    output.append("row ").append(command).append('.').append(row).append(": some typical output\n");
+                }
+                byte[] bytes = output.append(">>> ").toString().getBytes(StandardCharsets.UTF_8);
+                session.appendOutput(bytes, 0, bytes.length);
+                written += bytes.length;
+            }
+        }
+        workspace.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long openWorkspace() throws IOException {
+        Workspace workspace = Workspace.open(directory);
+        long lines = 0;
+        for (Session session : workspace.getSessions()) {
+            lines += session.getLineCount();
+        }
+        workspace.close();
+        return lines;
+    }
+
+    @Benchmark
+    public long restoreAllWindows() throws IOException {
+        Workspace workspace = Workspace.open(directory);
+        long chars = 0;
+        for (Session session : workspace.getSessions()) {
+            chars += session.recentOutput(WINDOW_LINES).text().length();
+        }
+        workspace.close();
+        return chars;
+    }
+}
@@ -4,5 +4,6 @@ include(
         "common",
         "coordination",
         "backend",
-        "ui"
+        "ui",
+        "jmh"
 )
\ No newline at end of file
@@ -8,6 +8,8 @@ plugins {
 
 dependencies {
     implementation(project(":common"))
+    implementation(project(":backend")) // Only through BackendBridge, loaded lazily
+    implementation("org.clojure:clojure:1.11.1")
     // implementation(project(":coordination")) NOT FINISHED YET
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.10.2")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.10.2")
@@ -22,3 +24,52 @@ javafx {
     version = "21"
     modules("javafx.controls", "javafx.fxml")
 }
+
+// ./gradlew :ui:jlink builds a runtime image with the app at build/image, bin/gui-repl starts it.
+// Besides the JDK's default CDS archive the image can get an AppCDS archive of the app's own classes
+// (JavaFX, Clojure, the backend), recorded by a training run: ./gradlew :ui:jlink -PcdsArchive, or
+// :ui:cdsArchive on its own, see below. -Xshare:auto: if the archive is missing or doesn't match the
+// image the JVM just loads classes the usual way, so a plain jlink image works without it.
+val imageDirectory = layout.buildDirectory.dir("image")
+
+jlink {
+    imageDir.set(imageDirectory)
+    options.set(listOf("--strip-debug", "--no-header-files", "--no-man-pages", "--generate-cds-archive"))
+    launcher {
+        name = "gui-repl"
+        jvmArgs = listOf("-XX:SharedArchiveFile={{BIN_DIR}}/../lib/gui-repl.jsa", "-Xshare:auto")
+    }
+}
+
+// Training run: starts the app from the image with a throwaway workspace, waits until the first
+// interpreter prompted and the backend is loaded (StartupTimer), closes it and dumps every class
+// it loaded into lib/gui-repl.jsa. Opens a window, so it needs a display (xvfb-run on a headless
+// box) and python on the PATH, like the app itself (ReplConfig.PYTHON). Opt-in for that reason.
+// Paths are only resolved when it runs, so configuring the build doesn't pin the image directory.
+val cdsArchive by tasks.registering(Exec::class) {
+    dependsOn(tasks.jlink)
+    val image = imageDirectory.map { it.asFile }
+    val trainingWorkspace = layout.buildDirectory.dir("tmp/cds-workspace").map { it.asFile }
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(
+            "-XX:ArchiveClassesAtExit=" + image.get().resolve("lib/gui-repl.jsa").path,
+            "-Dgui.repl.startup.exit.after=backend loaded",
+            "-Dgui.repl.workspace=" + trainingWorkspace.get().path,
+            "-m", "org.example.gui_repl.ui/org.example.gui_repl.ui.ReplApplication"
+        )
+    })
+    doFirst {
+        executable = image.get().resolve("bin/java").path
+        delete(trainingWorkspace)
+    }
+}
+
+if (providers.gradleProperty("cdsArchive").isPresent) {
+    tasks.jlink {
+        finalizedBy(cdsArchive)
+    }
+
+    tasks.jlinkZip {
+        dependsOn(cdsArchive) // The zip is the image as it's shipped, archive included
+    }
+}
@@ -3,6 +3,8 @@ module org.example.gui_repl.ui {
     requires javafx.fxml;
     requires org.example.gui_repl.common;
     requires java.management;
+    requires jdk.jfr; // Latency events, see LatencyRecorder
+    requires clojure; // Backend namespaces (system.clj) are called through clojure.java.api
     // requires org.example.gui_repl.coordination; NOT FINISHED YET
     opens org.example.gui_repl.ui to javafx.fxml;
     exports org.example.gui_repl.ui;
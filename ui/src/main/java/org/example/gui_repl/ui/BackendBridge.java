@@ -0,0 +1,181 @@
+// BackendBridge.java
+package org.example.gui_repl.ui;
+
+import clojure.java.api.Clojure;
+import clojure.lang.IFn;
+import clojure.lang.Keyword;
+import clojure.lang.PersistentHashMap;
+
+import java.util.Map;
+
+/**
+ * Java-side access to the Clojure backend's resource logic (backend/system.clj).
+ *
+ * The namespace is only required the first time something here is called, which takes a while
+ * (less when the backend jar is AOT-compiled, see backend/build.gradle.kts), so don't call it from
+ * the FX thread. If the backend can't be loaded we fall back to the same
+ * formulas computed locally and say so once on stderr, the UI must keep working either way.
+ */
+public final class BackendBridge {
+
+    public record SessionLimits(double maxSessions, double memoryPerSession, double cpuPerSession) {
+    }
+
+    public record SystemLoad(double cpuUsage, double memoryUsage) {
+    }
+
+    private static final String SYSTEM_NS = "org.example.gui-repl.backend.system";
+
+    private BackendBridge() {
+    }
+
+    // Holder idiom: the namespace loads on first use, not when BackendBridge itself is loaded
+    private static final class Backend {
+        static final boolean AVAILABLE;
+        static final IFn GET_RUNTIME_INFO;
+        static final IFn DEFAULT_SESSION_LIMITS;
+        static final IFn ADAPTIVE_LIMITS;
+        static final IFn CURRENT_SYSTEM_LOAD;
+        static final IFn LOAD_FACTOR;
+        static final IFn CACHED_LIMITS;
+        static final IFn MEMORY_INFO;
+
+        static {
+            boolean available = false;
+            IFn runtimeInfo = null, defaultLimits = null, adaptiveLimits = null, systemLoad = null, loadFactor = null, cachedLimits = null, memoryInfo = null;
+            try {
+                Clojure.var("clojure.core", "require").invoke(Clojure.read(SYSTEM_NS));
+                runtimeInfo = Clojure.var(SYSTEM_NS, "get-runtime-info");
+                defaultLimits = Clojure.var(SYSTEM_NS, "calculate-default-session-limits");
+                adaptiveLimits = Clojure.var(SYSTEM_NS, "calculate-adaptive-limits");
+                systemLoad = Clojure.var(SYSTEM_NS, "get-load-snapshot");
+                loadFactor = Clojure.var(SYSTEM_NS, "calculate-load-factor");
+                cachedLimits = Clojure.var(SYSTEM_NS, "get-cached-limits");
+                memoryInfo = Clojure.var(SYSTEM_NS, "get-system-memory-info");
+                // Starts the backend's load sampler (daemon thread), from here on reads are served from its cache
+                Clojure.var(SYSTEM_NS, "initialize-system-limits!").invoke();
+                available = true;
+            } catch (Throwable e) {
+                System.err.println("Backend unavailable, using built-in defaults for session limits: " + e);
+            }
+            StartupTimer.mark("backend loaded");
+            AVAILABLE = available;
+            GET_RUNTIME_INFO = runtimeInfo;
+            DEFAULT_SESSION_LIMITS = defaultLimits;
+            ADAPTIVE_LIMITS = adaptiveLimits;
+            CURRENT_SYSTEM_LOAD = systemLoad;
+            LOAD_FACTOR = loadFactor;
+            CACHED_LIMITS = cachedLimits;
+            MEMORY_INFO = memoryInfo;
+        }
+    }
+
+    /** calculate-default-session-limits over get-runtime-info. */
+    public static SessionLimits defaultSessionLimits() {
+        if (Backend.AVAILABLE) {
+            try {
+                return toLimits((Map<?, ?>) Backend.DEFAULT_SESSION_LIMITS.invoke(Backend.GET_RUNTIME_INFO.invoke()));
+            } catch (RuntimeException e) {
+                System.err.println("calculate-default-session-limits failed: " + e.getMessage());
+            }
+        }
+        // Same formula as the backend: 2 sessions per core, a quarter of the heap shared between them
+        Runtime runtime = Runtime.getRuntime();
+        int maxSessions = 2 * runtime.availableProcessors();
+        return new SessionLimits(maxSessions, runtime.maxMemory() * 0.25 / maxSessions, 1.0 / maxSessions);
+    }
+
+    /** calculate-adaptive-limits: the base limits scaled by how loaded the machine is right now. */
+    public static SessionLimits adaptiveLimits(SessionLimits base) {
+        if (Backend.AVAILABLE) {
+            try {
+                Map<?, ?> baseMap = Map.of(
+                        Keyword.intern("max-sessions"), base.maxSessions(),
+                        Keyword.intern("memory-per-session"), base.memoryPerSession(),
+                        Keyword.intern("cpu-per-session"), base.cpuPerSession());
+                return toLimits((Map<?, ?>) Backend.ADAPTIVE_LIMITS.invoke(PersistentHashMap.create(baseMap)));
+            } catch (RuntimeException e) {
+                System.err.println("calculate-adaptive-limits failed: " + e.getMessage());
+            }
+        }
+        double factor = loadFactor(currentLoad());
+        return new SessionLimits(base.maxSessions() * factor, base.memoryPerSession() * factor, base.cpuPerSession());
+    }
+
+    /**
+     * The backend's cached adaptive limits (get-cached-limits), refreshed by its sampler every couple
+     * of seconds. Cheap enough to call on every admission decision.
+     */
+    public static SessionLimits currentLimits() {
+        if (Backend.AVAILABLE) {
+            try {
+                Map<?, ?> limits = (Map<?, ?>) Backend.CACHED_LIMITS.invoke();
+                if (limits != null) {
+                    return toLimits(limits);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("get-cached-limits failed: " + e.getMessage());
+            }
+        }
+        return adaptiveLimits(defaultSessionLimits());
+    }
+
+    /** get-load-snapshot: smoothed (EWMA) CPU and memory usage, both values in [0, 1]. */
+    public static SystemLoad currentLoad() {
+        if (Backend.AVAILABLE) {
+            try {
+                Map<?, ?> load = (Map<?, ?>) Backend.CURRENT_SYSTEM_LOAD.invoke();
+                return new SystemLoad(number(load, "cpu-usage"), number(load, "memory-usage"));
+            } catch (RuntimeException e) {
+                System.err.println("get-load-snapshot failed: " + e.getMessage());
+            }
+        }
+        return new SystemLoad(0.0, 0.0);
+    }
+
+    /**
+     * get-system-memory-info's :memory-pressure, the share of physical memory in use right now
+     * (not smoothed, unlike currentLoad()). In [0, 1].
+     */
+    public static double memoryPressure() {
+        if (Backend.AVAILABLE) {
+            try {
+                return number((Map<?, ?>) Backend.MEMORY_INFO.invoke(), "memory-pressure");
+            } catch (RuntimeException e) {
+                System.err.println("get-system-memory-info failed: " + e.getMessage());
+            }
+        }
+        return currentLoad().memoryUsage();
+    }
+
+    /** calculate-load-factor: 0.5 under heavy load, 0.75 under moderate load, up to 1.2 when idle. */
+    public static double loadFactor(SystemLoad load) {
+        if (Backend.AVAILABLE) {
+            try {
+                Map<?, ?> loadMap = Map.of(
+                        Keyword.intern("cpu-usage"), load.cpuUsage(),
+                        Keyword.intern("memory-usage"), load.memoryUsage());
+                return ((Number) Backend.LOAD_FACTOR.invoke(PersistentHashMap.create(loadMap))).doubleValue();
+            } catch (RuntimeException e) {
+                System.err.println("calculate-load-factor failed: " + e.getMessage());
+            }
+        }
+        if (load.cpuUsage() > 0.8 || load.memoryUsage() > 0.8) return 0.5;
+        if (load.cpuUsage() > 0.6 || load.memoryUsage() > 0.6) return 0.75;
+        if (load.cpuUsage() > 0.3 && load.memoryUsage() < 0.3) return 1.2;
+        return 1.0;
+    }
+
+    private static SessionLimits toLimits(Map<?, ?> limits) {
+        return new SessionLimits(
+                number(limits, "max-sessions"),
+                number(limits, "memory-per-session"),
+                number(limits, "cpu-per-session"));
+    }
+
+    // Backend maps are keyword-keyed, and the numbers can be Longs, Doubles or Ratios
+    private static double number(Map<?, ?> map, String key) {
+        Object value = map.get(Keyword.intern(key));
+        return value instanceof Number number ? number.doubleValue() : 0.0;
+    }
+}
@@ -0,0 +1,110 @@
+// CommandTracker.java
+package org.example.gui_repl.ui;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Matches commands sent to a REPL with their responses. Every submitted command gets a future,
+ * and the output monitor completes the oldest one directly when it sees the next prompt, so no
+ * one has to poll for readiness. Interpreters answer strictly in order, which is what makes
+ * pipelining safe: several commands can be in flight and each prompt closes exactly one of them.
+ *
+ * submit() is called from the FX thread, onOutput()/onPrompt() from the reader thread.
+ */
+public class CommandTracker {
+
+    public record CommandResult(String command, String output, long roundTripNanos) {
+        public double roundTripMillis() {
+            return roundTripNanos / 1_000_000.0;
+        }
+    }
+
+    private static final class PendingCommand {
+        final String command;
+        final long submittedAt = System.nanoTime();
+        final CompletableFuture<CommandResult> future = new CompletableFuture<>();
+        final StringBuilder output = new StringBuilder(); // Reader thread only
+        boolean sawOutput = false; // Reader thread only
+
+        PendingCommand(String command) {
+            this.command = command;
+        }
+    }
+
+    private final Queue<PendingCommand> pending = new ConcurrentLinkedQueue<>();
+    private final LatencyRecorder latency;
+
+    private volatile long lastRoundTripNanos = 0;
+    private volatile long completedCommands = 0;
+    private volatile long totalRoundTripNanos = 0;
+
+    public CommandTracker(LatencyRecorder latency) {
+        this.latency = latency;
+    }
+
+    /** Registers a command; must happen before the command is written to the process. */
+    public CompletableFuture<CommandResult> submit(String command) {
+        PendingCommand pendingCommand = new PendingCommand(command);
+        pending.add(pendingCommand);
+        return pendingCommand.future;
+    }
+
+    /** Output that isn't a prompt belongs to the oldest command still waiting for its prompt. */
+    public void onOutput(CharSequence text) {
+        PendingCommand head = pending.peek();
+        if (head != null) {
+            if (!head.sawOutput) {
+                head.sawOutput = true;
+                latency.onFirstOutput(head.command, head.submittedAt, System.nanoTime());
+            }
+            head.output.append(text);
+        }
+    }
+
+    /**
+     * A prompt closes the oldest in-flight command. Returns false if nothing was waiting
+     * (e.g. the banner prompt at startup).
+     */
+    public boolean onPrompt() {
+        PendingCommand head = pending.poll();
+        if (head == null) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long roundTrip = now - head.submittedAt;
+        latency.onPrompt(head.command, head.submittedAt, now);
+        lastRoundTripNanos = roundTrip;
+        totalRoundTripNanos += roundTrip; // Only the reader thread writes these
+        completedCommands++;
+        // A command that already timed out still consumes its prompt, which keeps the rest aligned
+        head.future.complete(new CommandResult(head.command, head.output.toString(), roundTrip));
+        return true;
+    }
+
+    /** Fails everything in flight, e.g. when the process dies or the tab is closed. */
+    public void failAll(Throwable cause) {
+        PendingCommand command;
+        while ((command = pending.poll()) != null) {
+            command.future.completeExceptionally(cause);
+        }
+    }
+
+    public int getInFlight() {
+        return pending.size();
+    }
+
+    public long getLastRoundTripNanos() {
+        return lastRoundTripNanos;
+    }
+
+    public long getCompletedCommands() {
+        return completedCommands;
+    }
+
+    public double getAverageRoundTripMillis() {
+        long completed = completedCommands;
+        return completed == 0 ? 0.0 : totalRoundTripNanos / (completed * 1_000_000.0);
+    }
+}
@@ -0,0 +1,98 @@
+// IdleSessionManager.java
+package org.example.gui_repl.ui;
+
+import org.example.gui_repl.common.HashedWheelTimer;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Lets people keep dozens of tabs open without every one of them holding on to a resident
+ * interpreter. Every few seconds it asks the backend for the memory pressure (get-system-memory-info),
+ * and while that's high it hibernates the tabs that have been idle for a while:
+ *
+ *   above the suspend threshold    SIGSTOP every idle interpreter, the kernel can page them out first
+ *   above the terminate threshold  also kill the longest idle one (one per check, so the freed memory
+ *                                  shows up in the next reading before we kill another)
+ *
+ * The selected tab is never touched. Selecting a hibernated tab wakes it: a suspended interpreter
+ * gets SIGCONT, a terminated one is restarted and its input history replayed, see
+ * {@link ReplProcessController#wake()}. Replaying re-runs the commands, side effects included, which
+ * is why terminating needs the higher threshold.
+ *
+ * Thresholds and idle time can be changed with -Dgui.repl.hibernate.suspend=0.85,
+ * -Dgui.repl.hibernate.terminate=0.95 and -Dgui.repl.hibernate.idle.minutes=5.
+ */
+public final class IdleSessionManager {
+
+    public static final long DEFAULT_CHECK_INTERVAL_MS = 5_000;
+
+    private final double suspendPressure = Double.parseDouble(System.getProperty("gui.repl.hibernate.suspend", "0.85"));
+    private final double terminatePressure = Double.parseDouble(System.getProperty("gui.repl.hibernate.terminate", "0.95"));
+    private final long idleNanos = TimeUnit.MINUTES.toNanos(Long.getLong("gui.repl.hibernate.idle.minutes", 5));
+
+    private final Supplier<Collection<ReplProcessController>> sessions;
+    private volatile ReplProcessController focused; // The selected tab, never hibernated
+    private HashedWheelTimer.Timeout checker;
+
+    public IdleSessionManager(Supplier<Collection<ReplProcessController>> sessions) {
+        this.sessions = sessions;
+    }
+
+    public synchronized void start() {
+        if (checker == null) {
+            checker = SessionRuntime.getInstance().scheduleAtFixedRate(
+                    this::check, DEFAULT_CHECK_INTERVAL_MS, DEFAULT_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (checker != null) {
+            checker.cancel();
+            checker = null;
+        }
+    }
+
+    /** FX thread, whenever the selected tab changes. Wakes the tab if it was hibernated. */
+    public void setFocused(ReplProcessController controller) {
+        focused = controller;
+        if (controller != null) {
+            controller.wake();
+        }
+    }
+
+    // On a background virtual thread, the signals and the kill may block for a bit
+    private void check() {
+        double pressure = BackendBridge.memoryPressure();
+        if (pressure < suspendPressure) {
+            return; // Hibernated tabs stay that way until they're selected, they cost nothing as they are
+        }
+        ReplProcessController selected = focused;
+        List<ReplProcessController> idle = sessions.get().stream()
+                .filter(controller -> controller != selected && controller.getIdleNanos() >= idleNanos)
+                .sorted(Comparator.comparingLong(ReplProcessController::getIdleNanos).reversed())
+                .toList();
+
+        int suspended = 0;
+        for (ReplProcessController controller : idle) {
+            if (controller.suspendIfIdle()) {
+                suspended++;
+            }
+        }
+        if (suspended > 0) {
+            ReplProcessController.verbose("Memory pressure %.0f%%: suspended %d idle sessions%n", pressure * 100, suspended);
+        }
+
+        if (pressure >= terminatePressure) {
+            for (ReplProcessController controller : idle) {
+                if (controller.terminateIfIdle()) {
+                    ReplProcessController.verbose("Memory pressure %.0f%%: terminated the longest idle session%n", pressure * 100);
+                    return;
+                }
+            }
+        }
+    }
+}
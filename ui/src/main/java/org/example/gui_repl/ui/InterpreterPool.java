@@ -0,0 +1,220 @@
+// InterpreterPool.java
+package org.example.gui_repl.ui;
+
+import org.example.gui_repl.common.HashedWheelTimer;
+import org.example.gui_repl.common.PromptScanner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interpreter processes that were started ahead of time and are already sitting at their first
+ * prompt, so a new tab only has to adopt one instead of waiting for the interpreter to boot.
+ *
+ * How many we keep warm per config comes from the backend: a fraction of the cached adaptive
+ * max-sessions (never more than we'd be allowed to open), cut down when calculate-load-factor says
+ * the machine is under pressure. A maintenance tick refills or shrinks the pool in the background.
+ */
+public final class InterpreterPool {
+
+    public static final int MAX_WARM_PER_CONFIG = 4;
+    private static final long MAINTENANCE_PERIOD_SECONDS = 5;
+    private static final long WARMUP_TIMEOUT_SECONDS = 30;
+
+    private static final InterpreterPool INSTANCE = new InterpreterPool();
+
+    /** A process at its first prompt, plus everything it printed to get there (banner and prompt). */
+    public record WarmInterpreter(Process process, byte[] startupOutput, long warmupNanos) {
+    }
+
+    private final Map<ReplConfig, Deque<WarmInterpreter>> ready = new ConcurrentHashMap<>();
+    private final Map<ReplConfig, AtomicInteger> warming = new ConcurrentHashMap<>();
+    private final SessionRuntime.Session poolSession = SessionRuntime.getInstance().openSession("interpreter-pool");
+    private volatile int targetPerConfig = 0; // Nothing until the first maintenance tick asked the backend
+    private volatile boolean closed = false;
+    private HashedWheelTimer.Timeout maintenance;
+
+    private InterpreterPool() {
+    }
+
+    public static InterpreterPool getInstance() {
+        return INSTANCE;
+    }
+
+    /** Starts keeping interpreters of this config warm. */
+    public synchronized void register(ReplConfig config) {
+        if (closed) {
+            return;
+        }
+        ready.computeIfAbsent(config, key -> new ConcurrentLinkedDeque<>());
+        warming.computeIfAbsent(config, key -> new AtomicInteger(0));
+        if (maintenance == null) {
+            maintenance = SessionRuntime.getInstance().scheduleAtFixedRate(
+                    this::maintain, 0, MAINTENANCE_PERIOD_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Hands out a warm interpreter for this config, or null if none is ready (the caller then starts
+     * one the slow way). Never blocks, safe to call from the FX thread.
+     */
+    public WarmInterpreter acquire(ReplConfig config) {
+        Deque<WarmInterpreter> queue = ready.get(config);
+        if (queue == null) {
+            return null;
+        }
+        WarmInterpreter warm;
+        while ((warm = queue.pollFirst()) != null) {
+            if (warm.process().isAlive()) {
+                break;
+            }
+        }
+        if (!closed) {
+            poolSession.submit(SessionRuntime.TaskKind.BACKGROUND, () -> refill(config));
+        }
+        return warm;
+    }
+
+    public int getReadyCount(ReplConfig config) {
+        Deque<WarmInterpreter> queue = ready.get(config);
+        return queue == null ? 0 : queue.size();
+    }
+
+    public int getTargetPerConfig() {
+        return targetPerConfig;
+    }
+
+    private void maintain() {
+        if (closed) {
+            return;
+        }
+        targetPerConfig = computeTarget();
+        for (ReplConfig config : ready.keySet()) {
+            shrink(config);
+            refill(config);
+        }
+    }
+
+    private int computeTarget() {
+        BackendBridge.SessionLimits limits = BackendBridge.currentLimits();
+        double loadFactor = BackendBridge.loadFactor(BackendBridge.currentLoad());
+
+        int target = (int) Math.min(MAX_WARM_PER_CONFIG, Math.ceil(limits.maxSessions() / 8.0));
+        if (loadFactor <= 0.5) {
+            target = 0; // Heavy load: a spare interpreter per language is a luxury we can't afford
+        } else if (loadFactor < 1.0) {
+            target = Math.min(target, 1);
+        }
+        // Warm processes count against max-sessions like open tabs do (minus us, we're not a tab)
+        int openTabs = SessionRuntime.getInstance().getSessions().size() - 1;
+        int headroom = (int) limits.maxSessions() - openTabs;
+        return Math.max(0, Math.min(target, headroom));
+    }
+
+    private void shrink(ReplConfig config) {
+        Deque<WarmInterpreter> queue = ready.get(config);
+        while (queue.size() > targetPerConfig) {
+            WarmInterpreter extra = queue.pollLast();
+            if (extra == null) {
+                break;
+            }
+            extra.process().destroy();
+        }
+    }
+
+    private void refill(ReplConfig config) {
+        AtomicInteger inFlight = warming.get(config);
+        Deque<WarmInterpreter> queue = ready.get(config);
+        while (!closed && queue.size() + inFlight.get() < targetPerConfig) {
+            inFlight.incrementAndGet();
+            poolSession.submit(SessionRuntime.TaskKind.READER, () -> {
+                try {
+                    warmUp(config);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    // Runs on a reader thread (it blocks on the pipe): start the interpreter and read until its first prompt
+    private void warmUp(ReplConfig config) {
+        long start = System.nanoTime();
+        Process process;
+        try {
+            ProcessBuilder pb = new ProcessBuilder(config.commandLine());
+            pb.redirectErrorStream(true);
+            process = pb.start();
+        } catch (IOException e) {
+            System.err.println("Failed to pre-start " + config.command() + ": " + e.getMessage());
+            return;
+        }
+
+        // If the interpreter never gets to a prompt, killing it makes the read below return
+        CompletableFuture<Void> started = poolSession.withTimeout(new CompletableFuture<>(), WARMUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        started.whenComplete((ignored, error) -> {
+            if (error != null) {
+                process.destroyForcibly();
+            }
+        });
+
+        PromptScanner promptScanner = new PromptScanner(config.prompts().toArray(new String[0]));
+        ByteArrayOutputStream startupOutput = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        try {
+            InputStream in = process.getInputStream();
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                int promptEnd = promptScanner.scan(buf, 0, n);
+                if (promptEnd >= 0) {
+                    // Anything after the prompt shouldn't exist yet (no input was sent), keep it anyway
+                    startupOutput.write(buf, 0, n);
+                    if (started.complete(null)) {
+                        offer(config, new WarmInterpreter(process, startupOutput.toByteArray(), System.nanoTime() - start));
+                    }
+                    return;
+                }
+                startupOutput.write(buf, 0, n);
+            }
+        } catch (IOException e) {
+            // Falls through, the process is of no use to us
+        }
+        started.completeExceptionally(new IOException(config.command() + " exited before its first prompt"));
+        process.destroyForcibly();
+    }
+
+    private void offer(ReplConfig config, WarmInterpreter warm) {
+        Deque<WarmInterpreter> queue = ready.get(config);
+        if (closed || queue.size() >= targetPerConfig) {
+            warm.process().destroy(); // Target shrank while this one was starting
+            return;
+        }
+        queue.addLast(warm);
+        if (closed && queue.remove(warm)) {
+            warm.process().destroy(); // Lost a race with shutdown()
+        }
+    }
+
+    /** Kills every interpreter that was never handed out. */
+    public synchronized void shutdown() {
+        closed = true;
+        if (maintenance != null) {
+            maintenance.cancel();
+        }
+        for (Deque<WarmInterpreter> queue : ready.values()) {
+            WarmInterpreter warm;
+            while ((warm = queue.pollFirst()) != null) {
+                warm.process().destroy();
+            }
+        }
+        poolSession.close();
+    }
+}
@@ -0,0 +1,85 @@
+// LatencyHistogram.java
+package org.example.gui_repl.ui;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size log-linear histogram of nanosecond latencies, in the style of HdrHistogram: every power
+ * of two is split into 64 linear sub-buckets, so any recorded value is off by at most 1/64 (~1.6%),
+ * from single nanoseconds up to {@link #MAX_TRACKABLE_NANOS}.
+ *
+ * record() is a couple of shifts and one atomic increment, it never allocates, so it can sit on the
+ * reader and FX threads for every command. Readers (the metrics sidebar) may look at it at any time,
+ * a percentile taken while values are being recorded is just off by those few values.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;      // 128, the first bucket is all linear
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;      // 64 per power of two after that
+    private static final long SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+
+    public static final long MAX_TRACKABLE_NANOS = (1L << 40) - 1; // ~18 minutes, longer is clamped
+    private static final int BUCKET_COUNT = 40 - SUB_BUCKET_BITS + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray((BUCKET_COUNT + 1) * SUB_BUCKET_HALF);
+    private volatile long max = 0; // Single writer per histogram, see LatencyRecorder
+
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_TRACKABLE_NANOS));
+        counts.incrementAndGet(indexOf(value));
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    // Bucket 0 covers 0..127 one by one, bucket b >= 1 covers [64 << b, 128 << b) in steps of 1 << b
+    static int indexOf(long value) {
+        int bucket = 63 - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK) - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> bucket);
+        return bucket * SUB_BUCKET_HALF + subBucket;
+    }
+
+    // Largest value that lands in the same slot, so percentiles err on the slow side
+    static long highestValueAt(int index) {
+        int bucket = Math.max(0, index / SUB_BUCKET_HALF - 1);
+        long subBucket = index - (long) bucket * SUB_BUCKET_HALF;
+        return ((subBucket + 1) << bucket) - 1;
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /** The value below which the given percentage (0-100) of recordings fall, 0 if nothing was recorded. */
+    public long valueAtPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueAt(i), max);
+            }
+        }
+        return max; // Only when recordings raced with the two passes above
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        max = 0;
+    }
+}
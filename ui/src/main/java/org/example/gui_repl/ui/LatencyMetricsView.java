@@ -0,0 +1,72 @@
+// LatencyMetricsView.java
+package org.example.gui_repl.ui;
+
+import javafx.scene.control.Label;
+import javafx.scene.layout.VBox;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sidebar rows for the Metrics view: p50/p99 of each tab's {@link LatencyRecorder}. A slow first
+ * output points at the interpreter, a prompt far behind the first output at a backed up pipe, and a
+ * render far behind the prompt at the FX thread. FX thread only.
+ */
+public class LatencyMetricsView extends VBox {
+
+    private final Map<String, Row> rows = new HashMap<>();
+    private final Label emptyLabel = new Label("No running sessions.");
+
+    private static final class Row extends VBox {
+        private final Label heading = new Label();
+        private final Label firstOutput = new Label();
+        private final Label prompt = new Label();
+        private final Label render = new Label();
+
+        Row() {
+            heading.getStyleClass().add("sidebar-stats-heading");
+            for (Label label : new Label[] {firstOutput, prompt, render}) {
+                label.getStyleClass().add("sidebar-metrics-line");
+            }
+            getChildren().setAll(heading, firstOutput, prompt, render);
+            getStyleClass().add("sidebar-stats-row");
+        }
+
+        void update(LatencyRecorder recorder) {
+            long missed = recorder.getMissedRenders();
+            heading.setText(recorder.getSession() + ": " + recorder.getPrompt().getCount() + " commands"
+                    + (missed > 0 ? ", " + missed + " renders not tracked" : ""));
+            firstOutput.setText("First output  " + LatencyRecorder.percentiles(recorder.getFirstOutput()));
+            prompt.setText("Prompt        " + LatencyRecorder.percentiles(recorder.getPrompt()));
+            render.setText("On screen     " + LatencyRecorder.percentiles(recorder.getRender()));
+        }
+    }
+
+    public LatencyMetricsView() {
+        setSpacing(6);
+        emptyLabel.getStyleClass().add("sidebar-stats-heading");
+        getChildren().add(emptyLabel);
+    }
+
+    /** Redraws from the recorders' current histograms, keyed by tab name. */
+    public void refresh(Map<String, LatencyRecorder> recorders) {
+        rows.entrySet().removeIf(entry -> {
+            if (recorders.containsKey(entry.getKey())) {
+                return false;
+            }
+            getChildren().remove(entry.getValue()); // Tab was closed
+            return true;
+        });
+        recorders.forEach((tabName, recorder) -> {
+            Row row = rows.get(tabName);
+            if (row == null) {
+                row = new Row();
+                rows.put(tabName, row);
+                getChildren().add(row);
+            }
+            row.update(recorder);
+        });
+        emptyLabel.setVisible(rows.isEmpty());
+        emptyLabel.setManaged(rows.isEmpty());
+    }
+}
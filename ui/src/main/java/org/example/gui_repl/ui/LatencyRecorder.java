@@ -0,0 +1,190 @@
+// LatencyRecorder.java
+package org.example.gui_repl.ui;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Always-on latency instrumentation for one session, to tell a slow interpreter from a backed up
+ * pipe from a lagging FX thread. Three points per command, all measured from when it was submitted:
+ *
+ *   first output  the interpreter started answering (reader thread)
+ *   prompt        the interpreter is done (reader thread)
+ *   render        the pump appended everything up to that prompt to the scrollback (FX thread)
+ *
+ * Each point goes into its own {@link LatencyHistogram} and is emitted as a JFR event, so a recording
+ * (jcmd <pid> JFR.start) lines them up with GC pauses, I/O and the FX thread's own events.
+ *
+ * Prompts waiting to be rendered go through a small single-producer/single-consumer ring of
+ * primitives, nothing on this path allocates (the JFR events don't either while JFR is off).
+ */
+public class LatencyRecorder {
+
+    private static final int RENDER_QUEUE_CAPACITY = 256; // Prompts per pulse before we stop tracking renders
+
+    private final LatencyHistogram firstOutput = new LatencyHistogram();
+    private final LatencyHistogram prompt = new LatencyHistogram();
+    private final LatencyHistogram render = new LatencyHistogram();
+    private volatile String session;
+
+    // Prompted commands waiting for the pump, written by the reader thread, read on the FX thread
+    private final long[] renderPositions = new long[RENDER_QUEUE_CAPACITY]; // Output position the prompt ends at
+    private final long[] renderSubmittedAt = new long[RENDER_QUEUE_CAPACITY];
+    private final String[] renderCommands = new String[RENDER_QUEUE_CAPACITY];
+    private volatile long renderHead = 0; // Next to render, FX thread only writes it
+    private volatile long renderTail = 0; // Next free slot, reader thread only writes it
+    private volatile long missedRenders = 0;
+
+    // The command the last prompt closed, until the reader knows where its output ends (reader thread only)
+    private String promptedCommand;
+    private long promptedSubmittedAt;
+
+    public LatencyRecorder(String session) {
+        this.session = session;
+    }
+
+    public void setSession(String session) {
+        this.session = session;
+    }
+
+    /** Reader thread: first output of the command submitted at submittedAt. */
+    public void onFirstOutput(String command, long submittedAt, long now) {
+        long latency = now - submittedAt;
+        firstOutput.record(latency);
+        FirstOutputEvent event = new FirstOutputEvent();
+        if (event.shouldCommit()) {
+            event.fill(session, command, latency);
+            event.commit();
+        }
+    }
+
+    /** Reader thread: the command's prompt came back. Follow with {@link #onPromptWritten(long)}. */
+    public void onPrompt(String command, long submittedAt, long now) {
+        long latency = now - submittedAt;
+        prompt.record(latency);
+        promptedCommand = command;
+        promptedSubmittedAt = submittedAt;
+        PromptEvent event = new PromptEvent();
+        if (event.shouldCommit()) {
+            event.fill(session, command, latency);
+            event.commit();
+        }
+    }
+
+    /**
+     * Reader thread: the last prompted command's output ends at this position of the session's
+     * {@link OutputBuffer}, it's rendered once the pump has drained that far.
+     */
+    public void onPromptWritten(long outputPosition) {
+        if (promptedCommand == null) {
+            return; // The banner prompt, or a prompt nobody was waiting for
+        }
+        long tail = renderTail;
+        if (tail - renderHead == RENDER_QUEUE_CAPACITY) {
+            missedRenders++; // The FX thread is way behind, which the prompt histogram already shows
+        } else {
+            int slot = (int) (tail % RENDER_QUEUE_CAPACITY);
+            renderPositions[slot] = outputPosition;
+            renderSubmittedAt[slot] = promptedSubmittedAt;
+            renderCommands[slot] = promptedCommand;
+            renderTail = tail + 1; // Publishes the slot
+        }
+        promptedCommand = null;
+    }
+
+    /** FX thread, after the pump appended a chunk: everything up to drainedPosition is on screen. */
+    public void onRendered(long drainedPosition, long now) {
+        long head = renderHead;
+        long tail = renderTail;
+        while (head < tail) {
+            int slot = (int) (head % RENDER_QUEUE_CAPACITY);
+            if (renderPositions[slot] > drainedPosition) {
+                break;
+            }
+            long latency = now - renderSubmittedAt[slot];
+            render.record(latency);
+            RenderEvent event = new RenderEvent();
+            if (event.shouldCommit()) {
+                event.fill(session, renderCommands[slot], latency);
+                event.commit();
+            }
+            renderCommands[slot] = null;
+            head++;
+        }
+        renderHead = head;
+    }
+
+    public LatencyHistogram getFirstOutput() {
+        return firstOutput;
+    }
+
+    public LatencyHistogram getPrompt() {
+        return prompt;
+    }
+
+    public LatencyHistogram getRender() {
+        return render;
+    }
+
+    public long getMissedRenders() {
+        return missedRenders;
+    }
+
+    public String getSession() {
+        return session;
+    }
+
+    /** One line for logs, e.g. on shutdown. */
+    public String describe() {
+        return String.format("%d commands, first output %s, prompt %s, render %s",
+                prompt.getCount(), percentiles(firstOutput), percentiles(prompt), percentiles(render));
+    }
+
+    public static String percentiles(LatencyHistogram histogram) {
+        return String.format("p50 %.2f ms / p99 %.2f ms",
+                histogram.valueAtPercentile(50) / 1_000_000.0, histogram.valueAtPercentile(99) / 1_000_000.0);
+    }
+
+    // --- JFR events, under "REPL" in JDK Mission Control ---
+
+    @Category({"REPL", "Latency"})
+    @StackTrace(false) // Always the same few frames, not worth the cost
+    abstract static class CommandLatencyEvent extends Event {
+        @Label("Session")
+        String session;
+
+        @Label("Command")
+        String command;
+
+        @Label("Latency")
+        @Description("Time since the command was submitted")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+
+        void fill(String session, String command, long latency) {
+            this.session = session;
+            this.command = command;
+            this.latency = latency;
+        }
+    }
+
+    @Name("org.example.gui_repl.CommandFirstOutput")
+    @Label("Command First Output")
+    static class FirstOutputEvent extends CommandLatencyEvent {
+    }
+
+    @Name("org.example.gui_repl.CommandPrompt")
+    @Label("Command Prompt")
+    static class PromptEvent extends CommandLatencyEvent {
+    }
+
+    @Name("org.example.gui_repl.CommandRender")
+    @Label("Command Render")
+    static class RenderEvent extends CommandLatencyEvent {
+    }
+}
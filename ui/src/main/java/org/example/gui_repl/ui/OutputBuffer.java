@@ -0,0 +1,214 @@
+// OutputBuffer.java
+package org.example.gui_repl.ui;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, per-session hand-off buffer between a REPL's reader thread and the FX thread.
+ * The reader thread writes into it as fast as the process produces output, and the
+ * {@link OutputPump} drains it once per pulse, so the FX event queue only ever sees one
+ * append per session per frame no matter how many lines were printed.
+ *
+ * When the UI falls behind, {@link #write(CharSequence)} blocks the reader (which in turn stops
+ * reading the pipe, so the interpreter itself blocks on its next write). If the UI still hasn't
+ * caught up after the defer timeout, the oldest pending output is dropped to make room.
+ * Both cases are counted so we can report them.
+ */
+public class OutputBuffer {
+
+    public static final int DEFAULT_CAPACITY = 1 << 20; // 1M chars pending per session
+    public static final long DEFAULT_MAX_DEFER_MS = 5_000;
+
+    private final int capacity;
+    private final long maxDeferNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final StringBuilder pending = new StringBuilder();
+
+    // All guarded by lock
+    private long totalChars = 0;
+    private long deferredChars = 0;
+    private long droppedChars = 0;
+    private long droppedSinceLastDrain = 0;
+    private long consumedChars = 0; // Drained, cleared or dropped, so totalChars - consumedChars are pending
+    private boolean closed = false;
+
+    public OutputBuffer() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_DEFER_MS);
+    }
+
+    public OutputBuffer(int capacity, long maxDeferMillis) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.maxDeferNanos = TimeUnit.MILLISECONDS.toNanos(maxDeferMillis);
+    }
+
+    /**
+     * Called from the reader thread. Blocks while the buffer is full (up to the defer timeout),
+     * then drops the oldest pending output if the UI still hasn't drained it.
+     */
+    public void write(CharSequence text) throws InterruptedException {
+        if (text.length() == 0) {
+            return;
+        }
+        lock.lockInterruptibly();
+        try {
+            if (closed) {
+                return;
+            }
+            if (pending.length() + text.length() > capacity) {
+                deferredChars += text.length();
+                long remaining = maxDeferNanos;
+                while (!closed && pending.length() + text.length() > capacity && remaining > 0) {
+                    remaining = notFull.awaitNanos(remaining);
+                }
+                if (closed) {
+                    return;
+                }
+                int overflow = pending.length() + text.length() - capacity;
+                if (overflow > 0) {
+                    dropOldest(overflow, text);
+                    return;
+                }
+            }
+            pending.append(text);
+            totalChars += text.length();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Non-blocking append for status messages coming from the FX thread (we must never block it).
+     * Ignores the capacity, these are always short.
+     */
+    public void offer(CharSequence text) {
+        lock.lock();
+        try {
+            if (!closed) {
+                pending.append(text);
+                totalChars += text.length();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Makes room for text by throwing away the oldest pending chars (and, if text alone is
+    // bigger than the whole buffer, the head of text too). Caller holds the lock.
+    private void dropOldest(int overflow, CharSequence text) {
+        int fromPending = Math.min(overflow, pending.length());
+        pending.delete(0, fromPending);
+        int fromText = overflow - fromPending;
+        pending.append(text, fromText, text.length());
+        totalChars += text.length();
+        consumedChars += overflow;
+        droppedChars += overflow;
+        droppedSinceLastDrain += overflow;
+    }
+
+    /**
+     * Called on the FX thread once per pulse. Returns up to maxChars of pending output, or null
+     * if there is nothing to show.
+     */
+    public String drain(int maxChars) {
+        lock.lock();
+        try {
+            if (pending.length() == 0 && droppedSinceLastDrain == 0) {
+                return null;
+            }
+            int n = Math.min(maxChars, pending.length());
+            String chunk = pending.substring(0, n);
+            pending.delete(0, n);
+            consumedChars += n;
+            notFull.signalAll();
+            if (droppedSinceLastDrain > 0) {
+                chunk = "[... " + droppedSinceLastDrain + " chars of output dropped, UI fell behind ...]\n" + chunk;
+                droppedSinceLastDrain = 0;
+            }
+            return chunk;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Discards anything not yet drained (used by the "clear" command). */
+    public void clear() {
+        lock.lock();
+        try {
+            consumedChars += pending.length();
+            pending.setLength(0);
+            droppedSinceLastDrain = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Wakes up a blocked writer and makes every further write a no-op. */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getPendingChars() {
+        lock.lock();
+        try {
+            return pending.length();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getTotalChars() {
+        lock.lock();
+        try {
+            return totalChars;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * How far output has been taken out of the buffer, in the same count as {@link #getTotalChars()}:
+     * once this reaches the total seen after a write, that write has been drained (or dropped).
+     */
+    public long getConsumedChars() {
+        lock.lock();
+        try {
+            return consumedChars;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Chars whose write had to wait for the UI to catch up. */
+    public long getDeferredChars() {
+        lock.lock();
+        try {
+            return deferredChars;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Chars thrown away because the UI didn't catch up within the defer timeout. */
+    public long getDroppedChars() {
+        lock.lock();
+        try {
+            return droppedChars;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
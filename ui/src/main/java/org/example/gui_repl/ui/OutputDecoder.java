@@ -0,0 +1,50 @@
+// OutputDecoder.java
+package org.example.gui_repl.ui;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Incremental UTF-8 decoder for the reader thread. Decodes arbitrary byte ranges of the raw
+ * output into one reused CharBuffer, carrying a multi-byte character that was split across two
+ * reads over to the next call.
+ */
+class OutputDecoder {
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer carry = ByteBuffer.allocate(8);
+    private CharBuffer chars = CharBuffer.allocate(8192);
+
+    /** Returns the decoded text; only valid until the next call. */
+    CharBuffer decode(byte[] buf, int offset, int length) {
+        chars.clear();
+        ensureCapacity(length + carry.position());
+        ByteBuffer in = ByteBuffer.wrap(buf, offset, length);
+
+        // Finish a character left over from the previous read, byte by byte
+        while (carry.position() > 0 && in.hasRemaining()) {
+            carry.put(in.get());
+            carry.flip();
+            decoder.decode(carry, chars, false);
+            carry.compact();
+        }
+
+        decoder.decode(in, chars, false);
+        if (in.hasRemaining()) {
+            carry.put(in); // At most 3 bytes of an incomplete character
+        }
+        return chars.flip();
+    }
+
+    private void ensureCapacity(int bytes) {
+        // UTF-8 never decodes to more chars than it has bytes
+        if (chars.capacity() < bytes) {
+            chars = CharBuffer.allocate(Math.max(bytes, chars.capacity() * 2));
+        }
+    }
+}
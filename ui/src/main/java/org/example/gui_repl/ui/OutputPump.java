@@ -0,0 +1,78 @@
+// OutputPump.java
+package org.example.gui_repl.ui;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * One AnimationTimer shared by every tab. On each pulse it drains each registered
+ * {@link OutputBuffer} and hands the result to that tab's sink with a single append.
+ *
+ * Every session gets the same per-pulse budget, so a tab printing millions of lines
+ * only ever costs one bounded append per frame and can't starve the other tabs.
+ */
+public final class OutputPump extends AnimationTimer {
+
+    public static final int MAX_CHARS_PER_PULSE = 64 * 1024;
+
+    private static final OutputPump INSTANCE = new OutputPump();
+
+    private final List<Registration> registrations = new CopyOnWriteArrayList<>();
+    private boolean running = false; // Only touched on the FX thread
+
+    private OutputPump() {
+    }
+
+    public static OutputPump getInstance() {
+        return INSTANCE;
+    }
+
+    /** Must be called on the FX thread. */
+    public Registration register(OutputBuffer buffer, Consumer<String> sink) {
+        Registration registration = new Registration(buffer, sink);
+        registrations.add(registration);
+        if (!running) {
+            start();
+            running = true;
+        }
+        return registration;
+    }
+
+    /** Must be called on the FX thread. Flushes whatever is still pending before detaching. */
+    public void unregister(Registration registration) {
+        if (registrations.remove(registration)) {
+            registration.pump();
+        }
+        if (registrations.isEmpty() && running) {
+            stop();
+            running = false;
+        }
+    }
+
+    @Override
+    public void handle(long now) {
+        for (Registration registration : registrations) {
+            registration.pump();
+        }
+    }
+
+    public static final class Registration {
+        private final OutputBuffer buffer;
+        private final Consumer<String> sink;
+
+        private Registration(OutputBuffer buffer, Consumer<String> sink) {
+            this.buffer = buffer;
+            this.sink = sink;
+        }
+
+        private void pump() {
+            String chunk = buffer.drain(MAX_CHARS_PER_PULSE);
+            if (chunk != null) {
+                sink.accept(chunk);
+            }
+        }
+    }
+}
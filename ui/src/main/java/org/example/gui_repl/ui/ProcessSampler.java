@@ -0,0 +1,209 @@
+// ProcessSampler.java
+package org.example.gui_repl.ui;
+
+import org.example.gui_repl.common.HashedWheelTimer;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Samples CPU, memory and thread counts of every REPL session's process tree from /proc.
+ * Each session's history lives in fixed-size {@link SampleRing}s, so a session that runs for days
+ * costs the same as one that just started.
+ *
+ * Per sample and per process in the tree: /proc/pid/stat for CPU ticks, /proc/pid/status for RSS,
+ * and a listing of /proc/pid/task for its threads. Linux only, see {@link #isSupported()}.
+ */
+public class ProcessSampler {
+
+    public static final long DEFAULT_INTERVAL_MS = 1_000;
+    public static final int HISTORY = 120; // Samples kept per metric per session
+
+    // USER_HZ. Java can't ask sysconf(_SC_CLK_TCK), but it's 100 on every Linux we care about
+    private static final double CLOCK_TICKS_PER_SECOND = 100.0;
+    private static final Path PROC = Path.of("/proc");
+
+    /** Rolling history of one session. */
+    public static final class SessionStats {
+        private final String session;
+        private final SampleRing cpuPercent = new SampleRing(HISTORY);
+        private final SampleRing rssMegabytes = new SampleRing(HISTORY);
+        private final SampleRing threads = new SampleRing(HISTORY);
+        private volatile int processCount = 0;
+
+        // Sampler thread only
+        private long lastTicks = -1;
+        private long lastSampleNanos;
+
+        private SessionStats(String session) {
+            this.session = session;
+        }
+
+        public String getSession() {
+            return session;
+        }
+
+        public SampleRing getCpuPercent() {
+            return cpuPercent;
+        }
+
+        public SampleRing getRssMegabytes() {
+            return rssMegabytes;
+        }
+
+        public SampleRing getThreads() {
+            return threads;
+        }
+
+        public int getProcessCount() {
+            return processCount;
+        }
+    }
+
+    private final Supplier<Map<String, ProcessHandle>> sessionProcesses;
+    private final Map<String, SessionStats> stats = new ConcurrentHashMap<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private HashedWheelTimer.Timeout sampler;
+    private long intervalMillis = DEFAULT_INTERVAL_MS;
+
+    public ProcessSampler(Supplier<Map<String, ProcessHandle>> sessionProcesses) {
+        this.sessionProcesses = sessionProcesses;
+    }
+
+    public static boolean isSupported() {
+        return Files.isReadable(PROC.resolve("self/stat"));
+    }
+
+    public synchronized void start() {
+        stop();
+        sampler = SessionRuntime.getInstance().scheduleAtFixedRate(this::sample, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (sampler != null) {
+            sampler.cancel();
+            sampler = null;
+        }
+    }
+
+    /** Changes the sampling rate; takes effect immediately if we're running. */
+    public synchronized void setIntervalMillis(long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("interval must be positive: " + intervalMillis);
+        }
+        this.intervalMillis = intervalMillis;
+        if (sampler != null) {
+            start();
+        }
+    }
+
+    public synchronized long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /** Called (on the sampler's thread) after every sample. */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    public Collection<SessionStats> getStats() {
+        return List.copyOf(stats.values());
+    }
+
+    private synchronized void sample() {
+        Map<String, ProcessHandle> sessions = sessionProcesses.get();
+        stats.keySet().retainAll(sessions.keySet()); // Closed tabs
+        long now = System.nanoTime();
+
+        for (Map.Entry<String, ProcessHandle> session : sessions.entrySet()) {
+            SessionStats sessionStats = stats.computeIfAbsent(session.getKey(), SessionStats::new);
+            List<Long> pids = new ArrayList<>();
+            pids.add(session.getValue().pid());
+            session.getValue().descendants().forEach(child -> pids.add(child.pid()));
+
+            long ticks = 0;
+            long rssKilobytes = 0;
+            int threadCount = 0;
+            int processCount = 0;
+            for (long pid : pids) {
+                Path dir = PROC.resolve(Long.toString(pid));
+                long processTicks = readCpuTicks(dir);
+                if (processTicks < 0) {
+                    continue; // Exited while we were looking
+                }
+                ticks += processTicks;
+                rssKilobytes += readRssKilobytes(dir);
+                threadCount += countThreads(dir);
+                processCount++;
+            }
+
+            // Ticks of children that exited since the last sample disappear from the sum, never go below 0
+            double cpu = 0.0;
+            if (sessionStats.lastTicks >= 0) {
+                double seconds = (now - sessionStats.lastSampleNanos) / 1e9;
+                cpu = Math.max(0, ticks - sessionStats.lastTicks) / CLOCK_TICKS_PER_SECOND / seconds * 100.0;
+            }
+            sessionStats.lastTicks = ticks;
+            sessionStats.lastSampleNanos = now;
+
+            sessionStats.cpuPercent.add(cpu);
+            sessionStats.rssMegabytes.add(rssKilobytes / 1024.0);
+            sessionStats.threads.add(threadCount);
+            sessionStats.processCount = processCount;
+        }
+        listeners.forEach(Runnable::run);
+    }
+
+    // utime + stime from /proc/pid/stat, or -1 if the process is gone
+    private static long readCpuTicks(Path dir) {
+        try {
+            String stat = Files.readString(dir.resolve("stat"));
+            // The command name can contain spaces and parentheses, the fields we want come after the last ')'
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            // fields[0] is field 3 (state), so utime (14) and stime (15) are at 11 and 12
+            return Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static long readRssKilobytes(Path dir) {
+        try {
+            for (String line : Files.readAllLines(dir.resolve("status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    // "VmRSS:     12345 kB"
+                    return Long.parseLong(line.substring(6).trim().split("\\s+")[0]);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Gone, or a kernel thread without VmRSS
+        }
+        return 0;
+    }
+
+    private static int countThreads(Path dir) {
+        int count = 0;
+        try (DirectoryStream<Path> tasks = Files.newDirectoryStream(dir.resolve("task"))) {
+            for (Path ignored : tasks) {
+                count++;
+            }
+        } catch (IOException e) {
+            // Gone
+        }
+        return count;
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.gui_repl.ui;// Main.java (or ReplApplication.java)
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
@@ -10,6 +11,7 @@ public class ReplApplication extends Application {
 
     @Override
     public void start(Stage primaryStage) throws Exception {
+        StartupTimer.mark("fx started");
         FXMLLoader loader = new FXMLLoader(getClass().getResource("repl-view.fxml"));
         Scene scene = new Scene(loader.load(), 1200, 800); // Larger initial size
         mainController = loader.getController();
@@ -17,12 +19,22 @@ public class ReplApplication extends Application {
         primaryStage.setTitle("Dynamic REPL Environment");
         primaryStage.setScene(scene);
         primaryStage.show();
+        StartupTimer.mark("window shown");
 
         // Ensure proper shutdown
         primaryStage.setOnHidden(e -> mainController.shutdown());
+
+        // Tabs and interpreters only after the empty window made it through a pulse, so it's on screen first
+        Runnable[] startTabs = new Runnable[1];
+        startTabs[0] = () -> {
+            scene.removePostLayoutPulseListener(startTabs[0]);
+            Platform.runLater(mainController::start);
+        };
+        scene.addPostLayoutPulseListener(startTabs[0]);
     }
 
     public static void main(String[] args) {
+        StartupTimer.mark("main");
         launch(args);
     }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+// ReplConfig.java
+package org.example.gui_repl.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How to start one kind of interpreter and how to recognize its prompts.
+ * A record so it can key the interpreter pool: two tabs with equal configs can share warm processes.
+ */
+public record ReplConfig(String command, List<String> args, List<String> prompts) {
+
+    // -u for unbuffered output, -i so we get prompts even though stdin is a pipe
+    public static final ReplConfig PYTHON = new ReplConfig("python", List.of("-i", "-u"), List.of(">>> ", "... "));
+
+    public ReplConfig {
+        args = List.copyOf(args);
+        prompts = List.copyOf(prompts);
+    }
+
+    public List<String> commandLine() {
+        List<String> commandLine = new ArrayList<>();
+        commandLine.add(command);
+        commandLine.addAll(args);
+        return commandLine;
+    }
+}
@@ -1,22 +1,28 @@
 // ReplController.java
 package org.example.gui_repl.ui;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.control.*;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
+import javafx.util.Duration;
+import org.example.gui_repl.common.Session;
+import org.example.gui_repl.common.Workspace;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class ReplController {
@@ -26,8 +32,15 @@ public class ReplController {
     @FXML private StackPane sidebarContentPane; // Where dynamic content goes
 
     private AtomicInteger replCounter = new AtomicInteger(0);
-    private Map<String, ReplProcessController> activeReplControllers = new HashMap<>(); // To manage all controllers
-    private ExecutorService executorService;
+    private Map<String, ReplProcessController> activeReplControllers = new ConcurrentHashMap<>(); // To manage all controllers, read by sidebar pollers too
+    private final SocketInspector socketInspector = new SocketInspector(this::sessionProcesses);
+    private final ProcessSampler processSampler = new ProcessSampler(this::sessionProcesses);
+    private Runnable statsListener; // Set while the Processes or Threads view is showing
+    private Timeline metricsRefresh; // Set while the Metrics view is showing
+    // Suspends or stops idle tabs' interpreters when memory gets tight, wakes them when they're selected
+    private final IdleSessionManager idleSessionManager = new IdleSessionManager(() -> activeReplControllers.values());
+    private Workspace workspace; // The tabs' saved sessions, null if the directory can't be used (then nothing is saved)
+    private final Map<Tab, Session> pendingTabs = new HashMap<>(); // Restored tabs whose content isn't built yet, FX thread only
 
     // Inject this controller into a new ReplProcessController if needed (for fork)
     // You'd need a way for ReplProcessController to call back to this one
@@ -39,13 +52,104 @@ public class ReplController {
         detailsSidebar.setVisible(false); // Hide sidebar initially
         detailsSidebar.setManaged(false); // Don't take up space when hidden
 
-        createNewReplTab(); // Open an initial REPL tab on startup
-        executorService = Executors.newCachedThreadPool();
+        replTabPane.getSelectionModel().selectedItemProperty().addListener((observable, previous, tab) -> {
+            if (tab != null && pendingTabs.containsKey(tab)) {
+                buildTabContent(tab, pendingTabs.remove(tab), true); // Restored tab selected for the first time
+            }
+            idleSessionManager.setFocused(tab == null ? null : activeReplControllers.get(tab.getText()));
+        });
+    }
+
+    /**
+     * Opens the tabs and starts the background work, called by ReplApplication once the window is up.
+     * Nothing here runs before the window is on screen, and whatever can wait for the first prompt does.
+     */
+    public void start() {
+        if (!restoreWorkspace()) {
+            createNewReplTab(); // Open an initial REPL tab on startup
+        }
+        StartupTimer.mark("tabs created");
+        // Always sampling, so the sparklines already have history when the sidebar is opened
+        if (ProcessSampler.isSupported()) {
+            processSampler.start();
+        }
+        idleSessionManager.start();
+        // From then on keep python interpreters warm so the next tabs open instantly. Not before: the pool
+        // asks the backend and boots interpreters, both would only compete with the first tab's.
+        StartupTimer.whenFirstPrompt(() -> InterpreterPool.getInstance().register(ReplConfig.PYTHON));
+    }
+
+    // Tabs of the last run, as they were. Only metadata is read here; a tab is built when it's first
+    // selected, then it reads its journal and starts its interpreter (ReplProcessController.wake). False if there's nothing to restore.
+    private boolean restoreWorkspace() {
+        long start = System.nanoTime();
+        try {
+            workspace = Workspace.open(Workspace.defaultDirectory());
+        } catch (IOException e) {
+            System.err.println("Sessions won't be saved, failed to open the workspace: " + e.getMessage());
+            return false;
+        }
+        List<Session> sessions = workspace.getSessions();
+        for (Session session : sessions) {
+            // Keep numbering new tabs after the restored ones
+            String name = session.getName();
+            if (name.startsWith("REPL-")) {
+                try {
+                    replCounter.accumulateAndGet(Integer.parseInt(name.substring("REPL-".length())), Math::max);
+                } catch (NumberFormatException e) {
+                    // Not one of ours, doesn't matter
+                }
+            }
+            createReplTab(name, session, true);
+        }
+        if (!sessions.isEmpty()) {
+            System.out.printf("Restored %d sessions from %s in %.1f ms%n", sessions.size(), workspace.getDirectory(),
+                    (System.nanoTime() - start) / 1_000_000.0);
+        }
+        return !sessions.isEmpty();
     }
 
     @FXML
     private void createNewReplTab() {
         System.out.println("createNewReplTab method called.");
+        String tabName = "REPL-" + replCounter.incrementAndGet();
+        ReplConfig config = ReplConfig.PYTHON;
+        Session session = workspace == null ? null
+                : workspace.create(tabName, config.command(), config.args(), config.prompts());
+        createReplTab(tabName, session, false);
+    }
+
+    private void createReplTab(String tabName, Session session, boolean restored) {
+        Tab newTab = new Tab(tabName); // Content is set by buildTabContent
+        newTab.setOnClosed(event -> {
+            System.out.println("Tab " + tabName + " is closing. Shutting down its process.");
+            pendingTabs.remove(newTab);
+            ReplProcessController controller = activeReplControllers.remove(tabName);
+            if (controller != null) {
+                controller.shutdown();
+            }
+            if (session != null) {
+                workspace.remove(session); // Closed on purpose, don't bring it back next time
+            }
+        });
+        System.out.println("New Tab object created.");
+
+        if (restored) {
+            // Just a title until it's selected, a dozen restored tabs cost one tab's FXML at startup
+            pendingTabs.put(newTab, session);
+            replTabPane.getTabs().add(newTab); // The first tab gets selected by the TabPane itself, which builds it
+            return;
+        }
+        if (buildTabContent(newTab, session, false)) {
+            replTabPane.getTabs().add(newTab);
+            System.out.println("Tab added to TabPane.");
+            replTabPane.getSelectionModel().select(newTab);
+            System.out.println("New tab selected.");
+        }
+    }
+
+    private boolean buildTabContent(Tab tab, Session session, boolean restored) {
+        String tabName = tab.getText();
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("repl-tab-content.fxml"));
             System.out.println("FXMLLoader for tab content created. Resource: " + getClass().getResource("repl-tab-content.fxml"));
@@ -57,24 +161,18 @@ public class ReplController {
             ReplProcessController newController = loader.getController();
             System.out.println("ReplProcessController instance obtained: " + newController);
 
-            String tabName = "REPL-" + replCounter.incrementAndGet();
             newController.setTabName(tabName);
             System.out.println("New tab name set: " + tabName);
+            if (session != null) {
+                newController.setReplConfig(session.getCommand(), session.getArgs().toArray(new String[0]),
+                        session.getPrompts().toArray(new String[0]));
+            }
+            newController.attach(session, restored);
 
-            Tab newTab = new Tab(tabName, tabContent); // This line is fine because Tab takes any Node
-            newTab.setOnClosed(event -> {
-                System.out.println("Tab " + tabName + " is closing. Shutting down its process.");
-                newController.shutdown();
-                activeReplControllers.remove(tabName);
-            });
-            System.out.println("New Tab object created.");
-
-            replTabPane.getTabs().add(newTab);
-            System.out.println("Tab added to TabPane.");
-            replTabPane.getSelectionModel().select(newTab);
-            System.out.println("New tab selected.");
-            activeReplControllers.put(tabName, newController);
+            tab.setContent(tabContent);
+            activeReplControllers.put(tabName, newController); // Before selecting, the selection listener looks it up
             System.out.println("Active REPL controller mapped.");
+            return true;
         } catch (IOException e) {
             System.err.println("Error creating new REPL tab: " + e.getMessage());
             e.printStackTrace();
@@ -82,6 +180,7 @@ public class ReplController {
             System.err.println("Unexpected error during tab creation: " + e.getMessage());
             e.printStackTrace();
         }
+        return false;
     }
 
     // --- Sidebar Toggle Buttons ---
@@ -108,6 +207,18 @@ public class ReplController {
         updateSidebar("Sockets");
     }
 
+    @FXML
+    private void toggleMetricsList() {
+        // Per tab latency percentiles, see LatencyRecorder
+        updateSidebar("Metrics");
+    }
+
+    @FXML
+    private void toggleFindList() {
+        // Find in the selected tab's output or all tabs', answered from each tab's trigram index
+        updateSidebar("Find");
+    }
+
     @FXML
     private void toggleUIList() {
         // What do you want to show for UI? JavaFX Scene Graph inspector?
@@ -116,6 +227,15 @@ public class ReplController {
     }
 
     private void updateSidebar(String category) {
+        socketInspector.stop(); // Only polls while the Sockets view is showing
+        if (statsListener != null) {
+            processSampler.removeListener(statsListener);
+            statsListener = null;
+        }
+        if (metricsRefresh != null) {
+            metricsRefresh.stop();
+            metricsRefresh = null;
+        }
         sidebarContentPane.getChildren().clear(); // Clear previous content
 
         // Show/hide sidebar
@@ -135,63 +255,153 @@ public class ReplController {
             // --- Dynamic Content Generation ---
             // This is where the actual logic for populating the list goes.
             // For now, let's just add some dummy items.
+            // Loading state goes in first, so the branches below can replace it synchronously
+            sidebarContentPane.getChildren().setAll(new Label("Loading " + category + " info..."));
 
             if (category.equals("Sockets")) {
-                // Execute netstat as a separate Java process (easier to get clean output)
-                executorService.submit(() -> { // Use the main controller's executor
-                    try {
-                        Process netstatProcess = new ProcessBuilder("netstat", "-tulnp").start();
-                        BufferedReader reader = new BufferedReader(new InputStreamReader(netstatProcess.getInputStream()));
-                        List<String> rawSocketLines = new ArrayList<>();
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            rawSocketLines.add(line);
+                // Read /proc/net/* directly and keep the list live; only added/removed rows are touched
+                if (!SocketInspector.isSupported()) {
+                    sidebarContentPane.getChildren().setAll(new Label("Socket inspection reads /proc/net, which this OS doesn't have."));
+                } else {
+                    ObservableList<SocketInspector.SocketEntry> sockets = FXCollections.observableArrayList();
+                    ListView<SocketInspector.SocketEntry> socketList = new ListView<>(sockets);
+                    socketList.setPlaceholder(new Label("No sockets detected."));
+                    socketList.setCellFactory(view -> new ListCell<>() {
+                        @Override
+                        protected void updateItem(SocketInspector.SocketEntry entry, boolean empty) {
+                            super.updateItem(entry, empty);
+                            setText(empty || entry == null ? null : entry.toString());
+                        }
+                    });
+                    socketList.getStyleClass().add("sidebar-list");
+                    socketList.setOnMouseClicked(e -> { // Click handler
+                        SocketInspector.SocketEntry entry = socketList.getSelectionModel().getSelectedItem();
+                        if (entry != null) {
+                            showSocketDetails(entry.toString());
                         }
-                        netstatProcess.waitFor();
-
-                        Platform.runLater(() -> {
-                            // Replace placeholder with actual list
-                            VBox socketList = new VBox(new Label("Listening/Established Sockets:"));
-                            socketList.setSpacing(2);
-                            if (rawSocketLines.isEmpty()) {
-                                socketList.getChildren().add(new Label("No sockets detected."));
-                            } else {
-                                // Parse and add clickable items
-                                for (String sLine : rawSocketLines) {
-                                    // Basic netstat parsing (needs robust regex for production)
-                                    if (sLine.matches("^(tcp|udp).*?(LISTEN|ESTABLISHED).*?(\\S+):(\\d+).*")) {
-                                        Label socketLabel = new Label(sLine.trim());
-                                        socketLabel.setStyle("-fx-text-fill: #a0a0a0; -fx-font-size: 10px; -fx-padding: 2px;");
-                                        socketLabel.setWrapText(true);
-                                        socketLabel.setOnMouseClicked(e -> showSocketDetails(sLine)); // Click handler
-                                        socketLabel.getStyleClass().add("sidebar-item"); // For styling
-                                        socketList.getChildren().add(socketLabel);
-                                    }
-                                }
-                            }
-                            sidebarContentPane.getChildren().setAll(socketList);
-                        });
-                    } catch (IOException | InterruptedException e) {
-                        Platform.runLater(() -> sidebarContentPane.getChildren().setAll(new Label("Error getting socket info: " + e.getMessage())));
-                    }
-                });
+                    });
+                    VBox.setVgrow(socketList, Priority.ALWAYS);
+                    sidebarContentPane.getChildren().setAll(new VBox(new Label("Sockets (live, owning tab on the right):"), socketList));
+                    socketInspector.start(SocketInspector.DEFAULT_INTERVAL_MS, delta -> {
+                        sockets.removeAll(delta.removed());
+                        sockets.addAll(delta.added());
+                    });
+                }
             } else if (category.equals("Processes")) {
-                // Similar execution of 'ps' command
-                sidebarContentPane.getChildren().setAll(new Label("Processes will be listed here."));
+                // CPU and RSS of each tab's interpreter and its children, sampled from /proc
+                if (!ProcessSampler.isSupported()) {
+                    sidebarContentPane.getChildren().setAll(new Label("Process sampling reads /proc, which this OS doesn't have."));
+                } else {
+                    sidebarContentPane.getChildren().setAll(showSessionStats(SessionStatsView.Mode.PROCESSES));
+                }
             } else if (category.equals("Threads")) {
-                // For threads, you'd likely want to list threads *within* the currently active REPL tab
-                // Or a system-wide view (harder).
-                sidebarContentPane.getChildren().setAll(new Label("Threads will be listed here."));
+                // OS threads of each tab's process tree, plus what each session costs us on the shared runtime
+                VBox threads = new VBox(buildRuntimeSummary());
+                threads.setSpacing(8);
+                if (ProcessSampler.isSupported()) {
+                    threads.getChildren().add(0, showSessionStats(SessionStatsView.Mode.THREADS));
+                }
+                sidebarContentPane.getChildren().setAll(threads);
+            } else if (category.equals("Metrics")) {
+                sidebarContentPane.getChildren().setAll(showLatencyMetrics());
+            } else if (category.equals("Find")) {
+                SearchView search = new SearchView(() -> new TreeMap<>(activeReplControllers), this::selectedTabName, this::revealHit);
+                sidebarContentPane.getChildren().setAll(search);
+                Platform.runLater(search::focus); // Once it's in the scene
             } else if (category.equals("UI")) {
                 sidebarContentPane.getChildren().setAll(new Label("UI specific details here."));
             }
             categoryContent.getChildren().add(sidebarContentPane); // Add the actual content pane
-            sidebarContentPane.getChildren().setAll(new Label("Loading " + category + " info...")); // Show loading state
             detailsSidebar.getChildren().setAll(categoryContent); // Set the sidebar content
         }
     }
 
+    // Live sampler rows; redrawn after every sample until the sidebar switches views
+    private SessionStatsView showSessionStats(SessionStatsView.Mode mode) {
+        SessionStatsView view = new SessionStatsView(mode);
+        view.refresh(processSampler, Map.of());
+        statsListener = () -> {
+            // Limit counters are files too, read them here on the sampler's thread rather than on the FX thread
+            Map<String, String> details = mode == SessionStatsView.Mode.PROCESSES ? resourceLimitDetails() : Map.of();
+            Platform.runLater(() -> view.refresh(processSampler, details));
+        };
+        processSampler.addListener(statsListener);
+        return view;
+    }
+
+    private String selectedTabName() {
+        Tab tab = replTabPane.getSelectionModel().getSelectedItem();
+        return tab == null ? null : tab.getText();
+    }
+
+    private void revealHit(SearchView.Hit hit) {
+        ReplProcessController controller = activeReplControllers.get(hit.tabName());
+        if (controller == null) {
+            return; // Closed since the search
+        }
+        replTabPane.getTabs().stream()
+                .filter(tab -> tab.getText().equals(hit.tabName()))
+                .findFirst()
+                .ifPresent(tab -> replTabPane.getSelectionModel().select(tab));
+        controller.reveal(hit.line());
+    }
+
+    // Histograms are read right on the FX thread, it's a scan of a few KB per tab once a second
+    private LatencyMetricsView showLatencyMetrics() {
+        LatencyMetricsView view = new LatencyMetricsView();
+        view.refresh(latencyRecorders());
+        metricsRefresh = new Timeline(new KeyFrame(Duration.seconds(1), event -> view.refresh(latencyRecorders())));
+        metricsRefresh.setCycleCount(Animation.INDEFINITE);
+        metricsRefresh.play();
+        return view;
+    }
+
+    private Map<String, LatencyRecorder> latencyRecorders() {
+        Map<String, LatencyRecorder> recorders = new TreeMap<>(); // Tab order, more or less
+        activeReplControllers.forEach((tabName, controller) -> recorders.put(tabName, controller.getLatencyRecorder()));
+        return recorders;
+    }
+
+    private Map<String, String> resourceLimitDetails() {
+        Map<String, String> details = new HashMap<>();
+        activeReplControllers.forEach((tabName, controller) -> {
+            ResourceLimiter.Limit limit = controller.getResourceLimit();
+            String limits = limit == null ? "no limits enforced" : limit.usage().describe();
+            boolean suspended = controller.getHibernation() == ReplProcessController.Hibernation.SUSPENDED;
+            details.put(tabName, suspended ? "suspended while idle, " + limits : limits);
+        });
+        return details;
+    }
+
+    private VBox buildRuntimeSummary() {
+        SessionRuntime runtime = SessionRuntime.getInstance();
+        VBox summary = new VBox(new Label("Session runtime: " + runtime.getActiveThreads() + " active tasks, "
+                + runtime.getPendingTimeouts() + " pending timers"));
+        summary.setSpacing(2);
+        for (SessionRuntime.Session session : runtime.getSessions()) {
+            Label sessionLabel = new Label(session.describe());
+            sessionLabel.setStyle("-fx-text-fill: #a0a0a0; -fx-font-size: 10px; -fx-padding: 2px;");
+            sessionLabel.setWrapText(true);
+            sessionLabel.getStyleClass().add("sidebar-item");
+            summary.getChildren().add(sessionLabel);
+        }
+        return summary;
+    }
+
+    // Tab name -> interpreter process, for the inspectors that need to know who owns what
+    private Map<String, ProcessHandle> sessionProcesses() {
+        Map<String, ProcessHandle> processes = new HashMap<>();
+        activeReplControllers.forEach((tabName, controller) -> {
+            ProcessHandle handle = controller.getProcessHandle();
+            if (handle != null) {
+                processes.put(tabName, handle);
+            }
+        });
+        return processes;
+    }
+
     private void showSocketDetails(String socketInfo) {
+        socketInspector.stop(); // The list is being replaced, stop feeding it
         // This is where you'd open a new pane/tab/dialog
         // to show live messages for the selected socket.
         // For a true live feed, you'd need to instrument the REPL's socket
@@ -219,20 +429,21 @@ public class ReplController {
 
     // Inside ReplController.java
     public void shutdown() {
+        socketInspector.stop();
+        processSampler.stop();
+        idleSessionManager.stop();
+        if (metricsRefresh != null) {
+            metricsRefresh.stop();
+        }
         // Shutdown all active REPL processes (already present)
         activeReplControllers.values().forEach(ReplProcessController::shutdown);
-
-        // Shut down this controller's own executor service
-        if (executorService != null) {
-            executorService.shutdownNow(); // Attempt to stop all running tasks
-            try {
-                if (!executorService.awaitTermination(5, java.util.concurrent.TimeUnit.SECONDS)) {
-                    System.err.println("Main ReplController executor did not terminate in time.");
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt(); // Restore interrupt status
-                System.err.println("Interrupted while waiting for main ReplController executor to shut down.");
-            }
+        if (workspace != null) {
+            workspace.close(); // Waits for the journals to catch up with the output of the processes we just stopped
         }
+
+        // Warm interpreters nobody adopted, then the runtime every tab's tasks ran on
+        InterpreterPool.getInstance().shutdown();
+        ResourceLimiter.getInstance().shutdown();
+        SessionRuntime.getInstance().shutdown();
     }
 }
\ No newline at end of file
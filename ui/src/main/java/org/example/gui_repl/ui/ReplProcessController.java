@@ -3,27 +3,49 @@ package org.example.gui_repl.ui;
 
 import javafx.application.Platform;
 import javafx.fxml.FXML;
-import javafx.scene.control.TextArea;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TextField;
-import java.io.BufferedReader;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.input.KeyEvent;
+import javafx.stage.FileChooser;
+import org.example.gui_repl.common.PromptScanner;
+import org.example.gui_repl.common.Session;
+import org.example.gui_repl.common.TrigramIndex;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.regex.Pattern;
 
 public class ReplProcessController {
 
-    @FXML private TextArea outputArea;
+    // What the IdleSessionManager did to this tab's interpreter while nobody was looking at it
+    public enum Hibernation { AWAKE, SUSPENDED, TERMINATED }
+
+    @FXML private ListView<String> outputView; // Virtualized, only the visible rows become cells
     @FXML private TextField inputField;
+    @FXML private CheckBox pipelineCheckBox; // Pipelined mode: queue commands without waiting for each prompt
 
-    private Process replProcess;
+    private volatile Process replProcess; // Read by the sidebar inspectors off the FX thread
+    private volatile ResourceLimiter.Limit resourceLimit; // Null until applied, or if limits can't be enforced here
     private PrintWriter processInputWriter;
-    private BufferedReader processOutputReader; // -> Out of order or does not exist in original file
-    private ExecutorService executorService;
+    private volatile InputStream processOutput; // Raw bytes, prompts are detected before any decoding happens
+    private SessionRuntime.Session session; // Our reader/writer/timeout tasks, on the shared session runtime
     private volatile boolean readyForInput = false;
     /*
     Volatile keyword is something crucial for multithreaded concurrent programming.
@@ -31,176 +53,685 @@ public class ReplProcessController {
      some local variable copy, and it orders the requests to read/write it as they are called.
     It just super helpful in a multithreaded environment to get the behaviour we want in this case.
     */
-    private Future<?> replOutputMonitorFuture;
+    private volatile boolean firstPromptSeen = false; // The REPL has started, even if it's busy right now
+    private volatile Future<?> replOutputMonitorFuture; // Volatile, the idle manager may stop them from its thread
+    private volatile Future<?> replInputWriterFuture;
     // In original, we had: private int line = 1; which we omitted in this version
-    private StringBuilder currentResponse = new StringBuilder(); // Not present in original
+    private String tabName = "REPL-1";
+    // Submit -> first output / prompt / on screen, per command, always on (histograms and JFR events)
+    private final LatencyRecorder latencyRecorder = new LatencyRecorder(tabName);
+    // Each command gets a future that the output monitor completes when the next prompt shows up
+    private final CommandTracker commandTracker = new CommandTracker(latencyRecorder);
+    // Commands waiting to be written, in order, by the input writer task
+    private final BlockingQueue<String> pendingInput = new LinkedBlockingQueue<>();
+    private static final long COMMAND_TIMEOUT_SECONDS = 10;
+    // Reader thread writes here, OutputPump drains it into the scrollback once per pulse
+    private final OutputBuffer outputBuffer = new OutputBuffer();
+    private OutputPump.Registration outputRegistration;
+    private ScrollbackList scrollback; // Hot window in memory, older lines spilled to disk
+    // For Find, fed exactly what the scrollback gets, so its line numbers are scrollback rows (after the journal's)
+    private final TrigramIndex outputIndex = new TrigramIndex();
+    private static final int MAX_CHECKED_BLOCKS = 4096; // Bounds a query's reads when the index can't narrow it down
+    private static final int CANDIDATE_PAGE = 64;
+
+    private static final KeyCombination COPY = KeyCombination.keyCombination("Shortcut+C");
+    private static final KeyCombination PASTE = KeyCombination.keyCombination("Shortcut+V");
 
     // Configuration for this specific REPL process
-    private String replCommand = "python";
-    private String[] replArgs = {"-i", "-u"}; // -u for unbuffered output -> we only had -i in original, the -u is new
-    private Pattern promptPattern = Pattern.compile("^(>>> |\\.\\.\\. ).*?$"); // In original, we had: private String promptRegex = "^(>>> |\\.\\.\\. )"; instead of this
+    // Command, args (-i -u for python) and the literal prompts, matched byte by byte at line start
+    private ReplConfig replConfig = ReplConfig.PYTHON;
+    private long startRequestedAt; // For logging how long the tab took to reach its first prompt
+
+    // Hibernation, see IdleSessionManager. State changes happen under hibernationLock.
+    private final Object hibernationLock = new Object();
+    private volatile Hibernation hibernation = Hibernation.AWAKE;
+    private volatile long lastActivityNanos = System.nanoTime(); // Last command sent or output read
+    // Everything the user ran, so a terminated interpreter can be brought back to the same state.
+    // Bounded: past MAX_HISTORY_CHARS it's dropped, and a woken tab starts a fresh interpreter instead.
+    private final List<HistoryEntry> inputHistory = new ArrayList<>(); // Guarded by itself, like the two below
+    private long historyChars = 0;
+    private boolean historyDropped = false;
+    private volatile List<HistoryEntry> pendingReplay; // Set by wake(), submitted once the new interpreter prompts
+    private volatile boolean replaying = false; // Replayed output was already shown the first time around
+    private volatile boolean runningScript = false; // Batch mode, a prompt per script line would just be noise
+    private static final int STDIN_BUFFER_CHARS = 64 * 1024;
+    private static final int MAX_LINES_PER_WRITE = 4096;
+    private static final long MAX_HISTORY_CHARS = Long.getLong("gui.repl.replay.max.chars", 1_000_000);
+    // Timings and hibernation on stdout, -Dgui.repl.verbose=true. The user sees what matters in the scrollback.
+    private static final boolean VERBOSE = Boolean.getBoolean("gui.repl.verbose");
+
+    /** One thing the user ran: a command, or a whole script (scriptName set), replayed the same way. */
+    private record HistoryEntry(String scriptName, List<String> lines) { }
+
+    // On-disk history of the tab, outlives the app. Null if the workspace couldn't be opened.
+    private Session savedSession;
+    private volatile boolean restorePending = false; // Restored tab, the journal's output isn't shown yet
+    private static final int RESTORE_WINDOW_LINES = 2000; // Read into the scrollback, older lines stay in the journal
 
-    private String tabName = "REPL-1";
     // Let SAB = `same as before` as in it's the same exactly as the original in the git repo right now
     // Let DTB = `different than before` as in it's completely new, not present at all in the original repo
     public ReplProcessController() {
-        executorService = Executors.newCachedThreadPool();
-    } // SAB
+        session = SessionRuntime.getInstance().openSession(tabName);
+        session.registerQueue("input", pendingInput);
+    } // DTB, no more thread pool per tab
 
     @FXML
     public void initialize() {
         System.out.println("ReplProcessController initialize() called"); // This is a debugging print statement this doesn't count
         System.out.println("InputField null? " + (inputField == null)); // This as well
-        outputArea.setWrapText(true); // Same
+        try {
+            scrollback = new ScrollbackList(new ScrollbackStore("repl"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create scrollback for " + tabName, e);
+        }
+        outputView.setItems(scrollback);
+        outputView.setFixedCellSize(18); // Lets the ListView skip measuring every row
+        outputView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        outputView.setCellFactory(view -> new OutputCell());
+        outputView.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
+            if (COPY.match(event)) {
+                copySelectedLines();
+                event.consume();
+            }
+        });
+        // A TextField drops the newlines of a multi-line paste, run those as a script instead
+        inputField.addEventFilter(KeyEvent.KEY_PRESSED, event -> {
+            String pasted = PASTE.match(event) ? Clipboard.getSystemClipboard().getString() : null;
+            if (pasted != null && pasted.indexOf('\n') >= 0) {
+                event.consume();
+                startScript("pasted script", pasted);
+            }
+        });
         inputField.setDisable(false);
-        startReplProcess();
+        outputRegistration = OutputPump.getInstance().register(outputBuffer, this::appendOutput);
+    }
+
+    /**
+     * Connects the tab to its saved session, after the name and config are set. A new tab starts its
+     * interpreter right away. A restored one starts out like a terminated hibernated tab: nothing is
+     * read or started until {@link #wake()}, i.e. until the tab is selected.
+     */
+    public void attach(Session saved, boolean restored) {
+        this.savedSession = saved;
+        if (restored) {
+            restorePending = saved != null;
+            hibernation = Hibernation.TERMINATED;
+        } else {
+            startReplProcess();
+        }
+    }
+
+    // FX thread: the last lines of the journal go through the store like normal output, the rest is
+    // only counted, the scrollback pages it in from the journal if it's ever scrolled to
+    private void restoreScrollback() {
+        long start = System.nanoTime();
+        try {
+            Session.RecentOutput recent = savedSession.recentOutput(RESTORE_WINDOW_LINES);
+            scrollback.restore(savedSession, recent.firstLine());
+            appendOutput(recent.text());
+            verbose("%s: restored %d lines of scrollback in %.1f ms%n", tabName,
+                    scrollback.size(), (System.nanoTime() - start) / 1_000_000.0);
+        } catch (IOException e) {
+            outputBuffer.offer("Failed to restore the output of " + tabName + ": " + e.getMessage() + "\n");
+        }
+    }
+
+    // Sink for the output pump, runs on the FX thread once per pulse
+    private void appendOutput(String chunk) {
+        scrollback.append(chunk);
+        outputIndex.append(chunk); // Indexed on the indexer thread
+        // Follow the output unless the user has selected lines (i.e. is reading or copying something)
+        if (outputView.getSelectionModel().getSelectedIndex() < 0) {
+            outputView.scrollTo(scrollback.size() - 1);
+        }
+        // This pulse lays out and draws what we just appended, so prompts up to here count as rendered
+        latencyRecorder.onRendered(outputBuffer.getConsumedChars(), System.nanoTime());
+    }
+
+    private void copySelectedLines() {
+        StringBuilder text = new StringBuilder();
+        for (Integer index : outputView.getSelectionModel().getSelectedIndices()) {
+            text.append(scrollback.get(index)).append('\n');
+        }
+        ClipboardContent content = new ClipboardContent();
+        content.putString(text.toString());
+        Clipboard.getSystemClipboard().setContent(content);
+    }
+
+    private static class OutputCell extends ListCell<String> {
+        OutputCell() {
+            getStyleClass().add("repl-output-line");
+        }
+
+        @Override
+        protected void updateItem(String item, boolean empty) {
+            super.updateItem(item, empty);
+            setText(empty ? null : item);
+        }
     }
 
     public void setTabName(String name) {
         this.tabName = name;
+        session.setName(name);
+        latencyRecorder.setSession(name);
     }
 
     // You can add setters to allow the main controller to configure
     // replCommand, replArgs, promptRegex for each new tab
-    public void setReplConfig(String command, String[] args, String promptRegex) {
-        this.replCommand = command;
-        this.replArgs = args;
-        this.promptPattern = Pattern.compile(promptRegex);
+    public void setReplConfig(String command, String[] args, String... prompts) {
+        this.replConfig = new ReplConfig(command, List.of(args), List.of(prompts));
+    }
+
+    public ReplConfig getReplConfig() {
+        return replConfig;
     }
 
     private void startReplProcess() {
+        startRequestedAt = System.nanoTime();
+        StartupTimer.mark("interpreter starting"); // Only the app's first counts
         try {
-            List<String> command = new ArrayList<>();
-            command.add(replCommand);
-            for (String arg : replArgs) {
-                command.add(arg);
+            List<String> command = replConfig.commandLine();
+
+            // A pre-started interpreter already at its prompt if the pool has one, otherwise boot a new one
+            InterpreterPool.WarmInterpreter warm = InterpreterPool.getInstance().acquire(replConfig);
+            if (warm != null) {
+                replProcess = warm.process();
+                // Replay what it printed while warming up, our monitor then sees the banner and first prompt as usual
+                processOutput = new SequenceInputStream(new ByteArrayInputStream(warm.startupOutput()), replProcess.getInputStream());
+                outputBuffer.offer("Starting " + tabName + ": " + String.join(" ", command) + " (pre-warmed)\n");
+            } else {
+                ProcessBuilder pb = new ProcessBuilder(command);
+                pb.redirectErrorStream(true);
+                replProcess = pb.start();
+                processOutput = replProcess.getInputStream();
+                outputBuffer.offer("Starting " + tabName + ": " + String.join(" ", command) + "\n");
+                outputBuffer.offer("Waiting for REPL to initialize... \n");
             }
 
-            ProcessBuilder pb = new ProcessBuilder(command);
-            pb.redirectErrorStream(true);
-            replProcess = pb.start();
+            // No autoflush, the writer flushes once per batch of queued lines
+            processInputWriter = new PrintWriter(new BufferedWriter(new OutputStreamWriter(replProcess.getOutputStream()), STDIN_BUFFER_CHARS));
 
-            processInputWriter = new PrintWriter(replProcess.getOutputStream(), true);
-            processOutputReader = new BufferedReader(new InputStreamReader(replProcess.getInputStream()));
-
-            Platform.runLater(() -> {
-                outputArea.appendText("Starting " + tabName + ": " + String.join(" ", command) + "\n");
-                outputArea.appendText("Waiting for REPL to initialize... \n");
-                    });
+            // Backend's per-session memory/CPU limits; may fork prlimit, so not on the FX thread
+            Process limited = replProcess;
+            session.submit(SessionRuntime.TaskKind.BACKGROUND,
+                    () -> resourceLimit = ResourceLimiter.getInstance().apply(tabName, limited));
 
             startReplOutputMonitor();
+            startReplInputWriter();
 
         } catch (IOException e) {
-            Platform.runLater(() -> {
-                outputArea.appendText("Failed to start " + tabName + " process: " + e.getMessage() + "\n");
-                inputField.setDisable(true);
-            });
+            outputBuffer.offer("Failed to start " + tabName + " process: " + e.getMessage() + "\n");
+            Platform.runLater(() -> inputField.setDisable(true));
         }
     }
 
     private void startReplOutputMonitor() {
-        replOutputMonitorFuture = executorService.submit(() -> {
+        InputStream output = processOutput; // A restarted interpreter gets its own reader
+        replOutputMonitorFuture = session.submit(SessionRuntime.TaskKind.READER, () -> {
+            PromptScanner promptScanner = new PromptScanner(replConfig.prompts().toArray(new String[0]));
+            OutputDecoder decoder = new OutputDecoder();
+            byte[] buf = new byte[8192];
             try {
-                String line;
-                AtomicBoolean firstPromptSeen = new AtomicBoolean(false);
-
-                // Use the instance variable, not a new one!
-                while ((line = processOutputReader.readLine()) != null) {
-                    final String outputLine = line;
-                    Platform.runLater(()->{
-                        outputArea.appendText(outputLine + "\n");
-
-                        // ADD THIS DEBUG LINE:
-                        System.out.println("Checking line: '" + outputLine + "' against pattern");
-
-                        if(promptPattern.matcher(outputLine).find()){
-                            System.out.println("PROMPT FOUND!"); // ADD THIS
-                            if(!firstPromptSeen.get()){
-                                outputArea.appendText("REPL ready for input!\n");
-                                inputField.setDisable(false);
-                                firstPromptSeen.set(true);
-                            }
-                            readyForInput = true;
-                            currentResponse.setLength(0);
-                        } else {
-                            currentResponse.append(outputLine).append("\n");
+                int n;
+                // Everything here runs on the reader thread. We never post per line to the FX thread,
+                // output goes through outputBuffer and the pump appends it once per pulse.
+                // read() returns as soon as any bytes are available, so a prompt without a trailing
+                // newline is noticed immediately instead of when the next line shows up.
+                while ((n = output.read(buf)) != -1) {
+                    int pos = 0;
+                    while (pos < n) {
+                        int promptEnd = promptScanner.scan(buf, pos, n - pos);
+                        if (promptEnd < 0) {
+                            emitOutput(decoder, buf, pos, n - pos);
+                            break;
+                        }
+                        // A prompt split across two reads has its head in the previous chunk already
+                        int promptLength = promptScanner.getPromptLength(promptScanner.getLastPrompt());
+                        int promptStart = Math.max(pos, promptEnd - promptLength);
+                        emitOutput(decoder, buf, pos, promptStart - pos);
+                        onPrompt();
+                        CharBuffer prompt = decoder.decode(buf, promptStart, promptEnd - promptStart);
+                        if (!replaying && !runningScript) {
+                            outputBuffer.write(prompt);
+                            journalOutput(buf, promptStart, promptEnd - promptStart);
                         }
-                    });
+                        latencyRecorder.onPromptWritten(outputBuffer.getTotalChars());
+                        pos = promptEnd;
+                    }
+                }
+                // Unless this was a hibernated interpreter and the new one's commands are already in flight
+                if (output == processOutput) {
+                    commandTracker.failAll(new IOException(tabName + " process exited"));
                 }
             } catch (IOException e) {
-                // ... rest of your exception handling
+                if (output == processOutput) {
+                    commandTracker.failAll(e);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // Cancelled by shutdown()
+            }
+        });
+    }
+
+    // Reader thread: plain output, shown and attributed to the command currently running
+    private void emitOutput(OutputDecoder decoder, byte[] buf, int offset, int length) throws InterruptedException {
+        if (length > 0) {
+            lastActivityNanos = System.nanoTime();
+            CharBuffer text = decoder.decode(buf, offset, length);
+            commandTracker.onOutput(text);
+            if (!replaying) {
+                outputBuffer.write(text);
+                journalOutput(buf, offset, length);
+            }
+        }
+    }
+
+    // Reader thread, the raw bytes, the journal decodes them when they're read back
+    private void journalOutput(byte[] buf, int offset, int length) {
+        if (savedSession != null) {
+            savedSession.appendOutput(buf, offset, length);
+        }
+    }
+
+    // Reader thread: the interpreter just printed a prompt and is waiting for the next line
+    private void onPrompt() throws InterruptedException {
+        boolean first = !firstPromptSeen;
+        if (first) {
+            outputBuffer.write("REPL ready for input!\n");
+            verbose("%s: first prompt after %.1f ms%n", tabName, (System.nanoTime() - startRequestedAt) / 1_000_000.0);
+            StartupTimer.firstPrompt();
+            Platform.runLater(() -> inputField.setDisable(false));
+            firstPromptSeen = true;
+        }
+        // Completes the matching command's future right here, no polling involved
+        commandTracker.onPrompt();
+        if (first) {
+            replayHistory(); // After the banner's prompt, otherwise that prompt would close the first replayed command
+        }
+        readyForInput = commandTracker.getInFlight() == 0;
+    }
+
+    // Reader thread: a restarted interpreter is up, run what the user ran in the one we terminated.
+    // Its output is not shown again, the scrollback still has it from the first time.
+    private void replayHistory() {
+        List<HistoryEntry> replay = pendingReplay;
+        if (replay == null) {
+            return;
+        }
+        pendingReplay = null;
+        replaying = true;
+        List<CompletableFuture<CommandTracker.CommandResult>> results = new ArrayList<>();
+        for (HistoryEntry entry : replay) {
+            for (String line : entry.lines()) {
+                results.add(commandTracker.submit(line));
+                pendingInput.add(line);
+            }
+        }
+        // Completed by the last replayed prompt, on this thread, before that prompt is written out.
+        // Per line like a script, the history's size bound keeps this bounded too.
+        session.withTimeout(CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])),
+                COMMAND_TIMEOUT_SECONDS * Math.max(1, results.size()), TimeUnit.SECONDS).whenComplete((done, error) -> {
+            replaying = false;
+            outputBuffer.offer(error == null
+                    ? "Restored " + tabName + " (" + describeHistory(replay) + " replayed)\n"
+                    : "Replay of " + tabName + " incomplete: " + error.getMessage() + "\n");
+        });
+    }
+
+    // Any thread. A replay that stops partway would rebuild a state the user never had, so past the
+    // bound the whole history goes and the next restart is a fresh interpreter (wake() says so).
+    private void recordHistory(String scriptName, List<String> lines) {
+        long chars = 0;
+        for (String line : lines) {
+            chars += line.length() + 1;
+        }
+        synchronized (inputHistory) {
+            if (historyDropped) {
+                return;
+            }
+            if (historyChars + chars > MAX_HISTORY_CHARS) {
+                inputHistory.clear();
+                historyChars = 0;
+                historyDropped = true;
+                return;
+            }
+            inputHistory.add(new HistoryEntry(scriptName, List.copyOf(lines)));
+            historyChars += chars;
+        }
+    }
+
+    private static String describeHistory(List<HistoryEntry> history) {
+        long scripts = history.stream().filter(entry -> entry.scriptName() != null).count();
+        long commands = history.size() - scripts;
+        return commands + " commands" + (scripts == 0 ? "" : " and " + scripts + (scripts == 1 ? " script" : " scripts"));
+    }
+
+    // Single writer so commands reach stdin in exactly the order they were tracked. Whatever is queued
+    // goes out in one write, so a script streams at pipe speed instead of a flush per line.
+    private void startReplInputWriter() {
+        replInputWriterFuture = session.submit(SessionRuntime.TaskKind.WRITER, () -> {
+            List<String> batch = new ArrayList<>();
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    batch.add(pendingInput.take());
+                    pendingInput.drainTo(batch, MAX_LINES_PER_WRITE - 1);
+                    for (String command : batch) {
+                        processInputWriter.println(command);
+                    }
+                    batch.clear();
+                    processInputWriter.flush();
+                    if (processInputWriter.checkError()) {
+                        commandTracker.failAll(new IOException("Failed to write to " + tabName + " process"));
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // Cancelled by shutdown()
             }
         });
     }
 
     @FXML
     private void handleInput() {
-        String input = inputField.getText().trim();
+        String input = inputField.getText(); // Not trimmed, indentation and blank lines mean something to Python
         inputField.clear();
-
-        if (input.equals("clear")) {
-            outputArea.clear();
+        String keyword = input.strip();
+
+        if (keyword.equals("clear")) {
+            outputBuffer.clear();
+            scrollback.clear();
+            outputIndex.clear();
+            if (savedSession != null) {
+                savedSession.clear(); // Otherwise it all comes back on the next start
+            }
             return;
         }
 
-        if (input.equals("exit") || input.equals("quit")) {
+        if (keyword.equals("exit") || keyword.equals("quit")) {
             shutdown();
             return;
         }
 
-        if (!readyForInput) {
-            outputArea.appendText(tabName + " not ready for input. Please wait.\n");
+        // In pipelined mode commands are queued behind the ones still running, otherwise wait for the prompt
+        if (!readyForInput && !(pipelineCheckBox.isSelected() && firstPromptSeen)) {
+            outputBuffer.offer(tabName + " not ready for input. Please wait.\n");
             return;
         }
 
         if (replProcess == null || !replProcess.isAlive()) {
-            outputArea.appendText(tabName + " process is not running.\n");
+            outputBuffer.offer(tabName + " process is not running.\n");
             return;
         }
 
         readyForInput = false;
-        executorService.submit(() -> sendCommandToRepl(input));
+        sendCommandToRepl(input);
     }
 
-    private void sendCommandToRepl(String command){
-        try {
-            Platform.runLater(() -> outputArea.appendText(">>> " + command + "\n"));
-            processInputWriter.println(command);
-            processInputWriter.flush();
-            CompletableFuture<Void> responseWaiter = CompletableFuture.runAsync(()->
-            {
-                try{
-                    for (int i = 0; i < 100; i++){
-                        if(readyForInput) break;
-                        Thread.sleep(100);
+    /**
+     * Queues a command for the writer and returns a future that the output monitor completes with
+     * the command's output and round-trip time once its prompt comes back.
+     */
+    public CompletableFuture<CommandTracker.CommandResult> sendCommandToRepl(String command) {
+        lastActivityNanos = System.nanoTime();
+        recordHistory(null, List.of(command));
+        outputBuffer.offer(command + "\n"); // The interpreter already printed the prompt in front of it
+        if (savedSession != null) {
+            savedSession.appendInput(command); // Queued, the journal writer thread does the writing
+        }
+        // Track before writing, otherwise a fast prompt could arrive before we know about the command
+        CompletableFuture<CommandTracker.CommandResult> result = commandTracker.submit(command);
+        pendingInput.add(command);
+
+        session.withTimeout(result, COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS).whenComplete((response, error) -> {
+            if (error == null) {
+                verbose("%s: '%s' took %.2f ms%n", tabName, command, response.roundTripMillis());
+            } else if (error instanceof TimeoutException) {
+                outputBuffer.offer("Command timeout: no prompt after " + COMMAND_TIMEOUT_SECONDS + " s\n");
+                readyForInput = true; // Let the user carry on, the late prompt still closes this command
+            } else {
+                outputBuffer.offer("Error sending command: " + error.getMessage() + "\n");
+                readyForInput = true;
+            }
+        });
+        return result;
+    }
+
+    @FXML
+    private void runScriptFile() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Run script in " + tabName);
+        File file = chooser.showOpenDialog(inputField.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        session.submit(SessionRuntime.TaskKind.BACKGROUND, () -> {
+            try {
+                String script = Files.readString(file.toPath());
+                Platform.runLater(() -> startScript(file.getName(), script));
+            } catch (IOException e) {
+                outputBuffer.offer("Failed to read " + file + ": " + e.getMessage() + "\n");
+            }
+        });
+    }
+
+    // FX thread, for the Run Script button and multi-line pastes
+    private void startScript(String name, String script) {
+        if (!firstPromptSeen || replProcess == null || !replProcess.isAlive()) {
+            outputBuffer.offer(tabName + " not ready for input. Please wait.\n");
+            return;
+        }
+        readyForInput = false;
+        runScript(name, script);
+    }
+
+    /**
+     * Batch mode: queues every line of the script at once, the writer streams them to stdin and the
+     * interpreter runs them back to back, no round trip through the FX thread in between. Prompts still
+     * close one line each, which attributes the output to statements (see {@link ScriptRunner}).
+     * Prompts aren't shown while it runs; the result is summarized in the scrollback when it's done.
+     *
+     * Like pasting into a terminal, anything the script reads from stdin (input()) takes the next line.
+     */
+    public CompletableFuture<ScriptRunner.Result> runScript(String name, String script) {
+        lastActivityNanos = System.nanoTime();
+        List<ScriptRunner.Statement> statements = ScriptRunner.split(script, replConfig);
+        List<CompletableFuture<CommandTracker.CommandResult>> lineResults = new ArrayList<>();
+        outputBuffer.offer("Running " + name + ": " + statements.size() + " statements...\n");
+        runningScript = true;
+        long start = System.nanoTime();
+        List<String> lines = new ArrayList<>();
+        for (ScriptRunner.Statement statement : statements) {
+            lines.addAll(statement.lines());
+        }
+        recordHistory(name, lines); // One entry, a wake replays the script as the batch it was
+        for (ScriptRunner.Statement statement : statements) {
+            for (String line : statement.lines()) {
+                lineResults.add(commandTracker.submit(line)); // Track before writing, as in sendCommandToRepl
+                pendingInput.add(line);
+            }
+        }
+        // Completed by the prompt of the last line, on the reader thread, before that prompt is written out
+        CompletableFuture<ScriptRunner.Result> result = CompletableFuture.allOf(lineResults.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> ScriptRunner.collect(name, statements,
+                        lineResults.stream().map(CompletableFuture::join).toList(), System.nanoTime() - start));
+        session.withTimeout(result, COMMAND_TIMEOUT_SECONDS * Math.max(1, lineResults.size()), TimeUnit.SECONDS)
+                .whenComplete((done, error) -> {
+                    runningScript = false;
+                    if (error == null) {
+                        verbose("%s: %s", tabName, done.describe());
+                        outputBuffer.offer(done.describe());
+                        readyForInput = commandTracker.getInFlight() == 0; // An empty script gets no prompt to do this
+                    } else {
+                        outputBuffer.offer("Script " + name + " did not finish: " + error.getMessage() + "\n");
+                        readyForInput = true;
+                    }
+                });
+        return result;
+    }
+
+    // --- Find ---
+
+    /**
+     * FX thread. Lines containing query (ignoring case), newest first, at most limit. Only the lines
+     * of the blocks the index returns are read back from the scrollback. Null if the query is too
+     * short for the index. Lines from the journal of a restored tab aren't indexed.
+     */
+    public List<SearchView.Hit> find(String query, int limit) {
+        String needle = TrigramIndex.fold(query);
+        long offset = scrollback.getJournalLines();
+        long indexed = scrollback.size() - offset;
+        List<SearchView.Hit> hits = new ArrayList<>();
+        int before = Integer.MAX_VALUE;
+        int checked = 0;
+        // A page of candidates at a time, a common word has its hits long before the index runs out
+        while (hits.size() < limit && checked < MAX_CHECKED_BLOCKS) {
+            int[] blocks = outputIndex.candidateBlocks(query, before, CANDIDATE_PAGE);
+            if (blocks == null) {
+                return null;
+            }
+            if (blocks.length == 0) {
+                break;
+            }
+            for (int block : blocks) {
+                long first = (long) block * TrigramIndex.BLOCK_LINES;
+                for (long line = Math.min(indexed, first + TrigramIndex.BLOCK_LINES) - 1; line >= first && hits.size() < limit; line--) {
+                    String text = scrollback.get((int) (offset + line));
+                    if (TrigramIndex.fold(text).contains(needle)) {
+                        hits.add(new SearchView.Hit(tabName, offset + line, text));
                     }
-                } catch (InterruptedException e){
-                    Thread.currentThread().interrupt();
                 }
-            });
+            }
+            checked += blocks.length;
+            before = blocks[blocks.length - 1];
+        }
+        return hits;
+    }
 
-            try {
-               responseWaiter.get(10, TimeUnit.SECONDS);
-            } catch (Exception e) {
-                Platform.runLater(() ->
-                        outputArea.appendText("Command timeout or error: " + e.getMessage() + "\n")
-                );
-                readyForInput = true;
+    /** FX thread. Scrolls to a line and selects it, which also stops following new output. */
+    public void reveal(long line) {
+        if (line < scrollback.size()) {
+            outputView.scrollTo((int) line);
+            outputView.getSelectionModel().clearAndSelect((int) line);
+            outputView.requestFocus();
+        }
+    }
+
+    public TrigramIndex getOutputIndex() {
+        return outputIndex;
+    }
+
+    // --- Hibernation, driven by IdleSessionManager ---
+
+    /** Time since the last command was sent or output was read. */
+    public long getIdleNanos() {
+        return System.nanoTime() - lastActivityNanos;
+    }
+
+    public Hibernation getHibernation() {
+        return hibernation;
+    }
+
+    // Up, at its prompt and with nothing queued, so stopping it can't cut a command short
+    private boolean isIdle() {
+        Process process = replProcess;
+        return firstPromptSeen && process != null && process.isAlive()
+                && commandTracker.getInFlight() == 0 && pendingInput.isEmpty();
+    }
+
+    /**
+     * SIGSTOP to the interpreter and its children: no more CPU, and the kernel can page it out first
+     * when memory runs short. Returns false if the session is busy or already hibernated.
+     */
+    public boolean suspendIfIdle() {
+        synchronized (hibernationLock) {
+            if (hibernation != Hibernation.AWAKE || !isIdle() || !signalProcessTree("STOP")) {
+                return false;
             }
-        } catch (Exception e) {
-            Platform.runLater(() ->
-                    outputArea.appendText("Error sending command: " + e.getMessage() + "\n")
-            );
-            readyForInput = true;
+            hibernation = Hibernation.SUSPENDED;
         }
+        verbose("%s: suspended, idle for %d s%n", tabName, getIdleNanos() / 1_000_000_000);
+        return true;
     }
 
-    public void shutdown() {
-        readyForInput = false;
+    /**
+     * Kills the interpreter but keeps the tab (scrollback, history, session). {@link #wake()} starts a
+     * new one and replays the input history into it. Returns false if the session is busy.
+     */
+    public boolean terminateIfIdle() {
+        synchronized (hibernationLock) {
+            if (hibernation == Hibernation.TERMINATED || !isIdle()) {
+                return false;
+            }
+            readyForInput = false;
+            stopReplProcess();
+            hibernation = Hibernation.TERMINATED;
+        }
+        outputBuffer.offer("[" + tabName + " was stopped to free memory, it restarts when you come back to it]\n");
+        verbose("%s: terminated to free memory%n", tabName);
+        return true;
+    }
+
+    /** FX thread. Undoes a suspend or terminate, e.g. because the tab was selected again. */
+    public void wake() {
+        lastActivityNanos = System.nanoTime();
+        synchronized (hibernationLock) {
+            if (hibernation == Hibernation.SUSPENDED) {
+                signalProcessTree("CONT");
+                verbose("%s: resumed%n", tabName);
+            } else if (hibernation == Hibernation.TERMINATED) {
+                if (restorePending) {
+                    restorePending = false;
+                    restoreScrollback(); // Before the new interpreter's output
+                }
+                List<HistoryEntry> history;
+                boolean dropped;
+                synchronized (inputHistory) {
+                    history = List.copyOf(inputHistory);
+                    dropped = historyDropped;
+                    historyDropped = false; // A fresh interpreter, its history starts now
+                }
+                pendingReplay = history.isEmpty() ? null : history;
+                firstPromptSeen = false;
+                outputBuffer.offer("Restoring " + tabName
+                        + (dropped ? ", with a fresh interpreter: the history was too long to replay (over "
+                                + MAX_HISTORY_CHARS / 1000 + "K chars)"
+                        : history.isEmpty() ? "" : ", replaying " + describeHistory(history)) + "...\n");
+                startReplProcess();
+            }
+            hibernation = Hibernation.AWAKE;
+        }
+    }
 
+    // kill -<signal> on the interpreter and its descendants. False where there's no kill (Windows) or it failed.
+    private boolean signalProcessTree(String signal) {
+        Process process = replProcess;
+        if (process == null || !process.isAlive()) {
+            return false;
+        }
+        List<String> command = new ArrayList<>(List.of("kill", "-" + signal, Long.toString(process.pid())));
+        process.descendants().forEach(child -> command.add(Long.toString(child.pid())));
+        try {
+            return new ProcessBuilder(command).start().waitFor() == 0;
+        } catch (IOException e) {
+            System.err.println("Failed to send SIG" + signal + " to " + tabName + ": " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Reader, writer and the interpreter itself. The tab's buffers, scrollback and session stay.
+    private void stopReplProcess() {
+        if (hibernation == Hibernation.SUSPENDED) {
+            signalProcessTree("CONT"); // A stopped process only acts on SIGTERM once it runs again
+        }
         if (replOutputMonitorFuture != null && !replOutputMonitorFuture.isDone()) {
             replOutputMonitorFuture.cancel(true);
         }
+        if (replInputWriterFuture != null && !replInputWriterFuture.isDone()) {
+            replInputWriterFuture.cancel(true);
+        }
 
         if (processInputWriter != null) {
             processInputWriter.close();
@@ -217,9 +748,73 @@ public class ReplProcessController {
                 replProcess.destroyForcibly();
             }
         }
+    }
+
+    // Also for IdleSessionManager, its hibernation notes are the same kind of chatter
+    static void verbose(String format, Object... args) {
+        if (VERBOSE) {
+            System.out.printf(format, args);
+        }
+    }
 
-        if (executorService != null) {
-            executorService.shutdownNow();
+    public void shutdown() {
+        readyForInput = false;
+        pendingInput.clear();
+        commandTracker.failAll(new CancellationException(tabName + " was shut down"));
+        stopReplProcess();
+
+        session.close();
+
+        outputIndex.close(); // Its share of the search budget goes to the other tabs
+        outputBuffer.close();
+        verbose("%s output: %d chars, %d deferred, %d dropped%n", tabName, outputBuffer.getTotalChars(),
+                outputBuffer.getDeferredChars(), outputBuffer.getDroppedChars());
+        verbose("%s latency: %s%n", tabName, latencyRecorder.describe());
+        if (outputRegistration != null) {
+            OutputPump.Registration registration = outputRegistration;
+            outputRegistration = null;
+            if (Platform.isFxApplicationThread()) {
+                OutputPump.getInstance().unregister(registration);
+            } else {
+                Platform.runLater(() -> OutputPump.getInstance().unregister(registration));
+            }
         }
+        if (scrollback != null) {
+            ScrollbackList closing = scrollback;
+            // After the last pump so nothing gets appended to a closed store
+            Platform.runLater(closing::close);
+        }
+    }
+
+    /** The interpreter's process, or null if it isn't running. Its descendants are the rest of the session. */
+    public ProcessHandle getProcessHandle() {
+        Process process = replProcess;
+        return process == null || !process.isAlive() ? null : process.toHandle();
+    }
+
+    /** Limits this session runs under, or null if none are enforced. */
+    public ResourceLimiter.Limit getResourceLimit() {
+        return resourceLimit;
+    }
+
+    public SessionRuntime.Session getSession() {
+        return session;
+    }
+
+    /** The tab's on-disk session, null if it isn't saved. */
+    public Session getSavedSession() {
+        return savedSession;
+    }
+
+    public CommandTracker getCommandTracker() {
+        return commandTracker;
+    }
+
+    public LatencyRecorder getLatencyRecorder() {
+        return latencyRecorder;
+    }
+
+    public OutputBuffer getOutputBuffer() {
+        return outputBuffer;
     }
 }
\ No newline at end of file
@@ -0,0 +1,381 @@
+// ResourceLimiter.java
+package org.example.gui_repl.ui;
+
+import org.example.gui_repl.common.HashedWheelTimer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Puts every session's interpreter under the backend's :memory-per-session and :cpu-per-session,
+ * so one runaway tab can't take the whole machine with it.
+ *
+ * The backend sizes :memory-per-session as a share of the JVM heap, which says nothing about how much
+ * an interpreter may use (a 4 GB heap on 8 cores is 64 MB a session). So the same share is applied to
+ * physical memory (MemTotal) instead, and only where there's no /proc/meminfo is the heap figure
+ * enforced as it is. A cap is never lowered below what the session already uses (plus some headroom),
+ * shrinking it under a running interpreter would only get it OOM-killed when the load goes up.
+ *
+ * Preferred: a cgroup v2 sub-group per session (memory.max and cpu.max) under the cgroup we were
+ * started in, which needs that cgroup to be delegated to us (systemd user sessions usually are).
+ * Otherwise: prlimit on the interpreter's pid, which can cap memory but has no notion of a CPU rate,
+ * so there we only lower the priority. Otherwise nothing, and the sidebar says so.
+ *
+ * A tick re-reads the backend's cached adaptive limits and resizes every live session when they change.
+ */
+public final class ResourceLimiter {
+
+    public enum Mode { CGROUP, PRLIMIT, NONE }
+
+    private static final long RESIZE_PERIOD_SECONDS = 5;
+    private static final long CPU_PERIOD_MICROS = 100_000;
+    private static final long MIN_MEMORY_BYTES = 64L * 1024 * 1024; // An interpreter can't even start below this
+    private static final long SHRINK_HEADROOM_BYTES = 32L * 1024 * 1024; // Room left above current usage when limits drop
+    private static final long PHYSICAL_MEMORY_BYTES = readMemTotal(); // -1 where there's no /proc/meminfo
+    private static final int FALLBACK_NICE = 10;
+    private static final Path CGROUP_ROOT = Path.of("/sys/fs/cgroup");
+
+    private static final ResourceLimiter INSTANCE = new ResourceLimiter(CGROUP_ROOT);
+
+    /**
+     * Live usage of one session. -1 means "not available in this mode", e.g. throttling counters
+     * only exist with cgroups.
+     */
+    public record Usage(Mode mode, long memoryBytes, long memoryLimitBytes, double cpuLimit,
+                        long cpuUsageMicros, long throttledPeriods, long throttledMicros, long oomKills) {
+        /** One line for the sidebar. */
+        public String describe() {
+            String memoryLimit = String.format("%.0f MB", memoryLimitBytes / (1024.0 * 1024.0));
+            if (mode == Mode.PRLIMIT) {
+                return "limit " + memoryLimit + " data (prlimit), CPU only deprioritized";
+            }
+            String description = String.format("limit %s / %.2f CPU (cgroup), using %.1f MB, throttled %dx (%d ms)",
+                    memoryLimit, cpuLimit, memoryBytes / (1024.0 * 1024.0), throttledPeriods, throttledMicros / 1000);
+            return oomKills > 0 ? description + ", " + oomKills + " OOM kills" : description;
+        }
+    }
+
+    private final Path cgroupRoot;
+    private final Set<Limit> limits = ConcurrentHashMap.newKeySet();
+    private Mode mode;       // Detected lazily, detection touches the filesystem
+    private Path parentGroup; // Where the session groups go, CGROUP mode only
+    private BackendBridge.SessionLimits applied;
+    private HashedWheelTimer.Timeout resizer;
+
+    ResourceLimiter(Path cgroupRoot) {
+        this.cgroupRoot = cgroupRoot;
+    }
+
+    public static ResourceLimiter getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized Mode getMode() {
+        if (mode == null) {
+            mode = detectMode();
+            System.out.println("Session resource limits: " + mode + (parentGroup == null ? "" : " under " + parentGroup));
+        }
+        return mode;
+    }
+
+    /**
+     * Puts the process under the current limits. Blocks on file writes or a prlimit fork,
+     * so call it off the FX thread. Returns null if limits can't be enforced here.
+     */
+    public Limit apply(String sessionName, Process process) {
+        if (getMode() == Mode.NONE) {
+            return null;
+        }
+        BackendBridge.SessionLimits sessionLimits = BackendBridge.currentLimits();
+        Limit limit = new Limit(sessionName, process.toHandle());
+        try {
+            limit.attach(sessionLimits);
+        } catch (IOException e) {
+            System.err.println("Failed to limit " + sessionName + ": " + e.getMessage());
+            limit.release();
+            return null;
+        }
+        limits.add(limit);
+        process.onExit().thenRun(limit::release); // Whoever kills it, the group goes away with it
+        startResizer(sessionLimits);
+        return limit;
+    }
+
+    private synchronized void startResizer(BackendBridge.SessionLimits current) {
+        if (applied == null) {
+            applied = current;
+        }
+        if (resizer == null) {
+            resizer = SessionRuntime.getInstance().scheduleAtFixedRate(
+                    this::resize, RESIZE_PERIOD_SECONDS, RESIZE_PERIOD_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    // The backend's adaptive limits move with the load, follow them
+    private void resize() {
+        BackendBridge.SessionLimits current = BackendBridge.currentLimits();
+        synchronized (this) {
+            if (current.equals(applied)) {
+                return;
+            }
+            applied = current;
+        }
+        for (Limit limit : limits) {
+            try {
+                limit.set(current);
+            } catch (IOException e) {
+                System.err.println("Failed to resize limits of " + limit.sessionName + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public synchronized void shutdown() {
+        if (resizer != null) {
+            resizer.cancel();
+            resizer = null;
+        }
+        limits.forEach(Limit::release);
+    }
+
+    private Mode detectMode() {
+        try {
+            Path parent = prepareCgroupParent();
+            if (parent != null) {
+                parentGroup = parent;
+                return Mode.CGROUP;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("cgroup v2 not usable for session limits: " + e.getMessage());
+        }
+        return commandExists("prlimit") ? Mode.PRLIMIT : Mode.NONE;
+    }
+
+    /*
+    cgroup v2 only hands memory and cpu to children of a group that has no processes of its own.
+    So if we're in a delegated group G we move ourselves into G/gui-repl, enable the controllers
+    on G and then put every session next to us in G/repl-<name>.
+     */
+    private Path prepareCgroupParent() throws IOException {
+        if (!Files.isReadable(cgroupRoot.resolve("cgroup.controllers"))) {
+            return null; // No unified hierarchy, or a hybrid one without controllers
+        }
+        String self = null;
+        for (String line : Files.readAllLines(Path.of("/proc/self/cgroup"))) {
+            if (line.startsWith("0::")) {
+                self = line.substring(3);
+            }
+        }
+        if (self == null) {
+            return null;
+        }
+        Path group = cgroupRoot.resolve(self.substring(1));
+        if (!Files.isWritable(group.resolve("cgroup.subtree_control"))) {
+            return null; // Not delegated to us
+        }
+        String available = Files.readString(group.resolve("cgroup.controllers"));
+        if (!available.contains("memory") || !available.contains("cpu")) {
+            return null;
+        }
+
+        String enabled = Files.readString(group.resolve("cgroup.subtree_control"));
+        if (!enabled.contains("memory") || !enabled.contains("cpu")) {
+            if (!Files.readString(group.resolve("cgroup.procs")).isBlank()) {
+                Path leaf = Files.createDirectories(group.resolve("gui-repl"));
+                for (String pid : Files.readString(group.resolve("cgroup.procs")).split("\\s+")) {
+                    if (!pid.isEmpty()) {
+                        writeControl(leaf.resolve("cgroup.procs"), pid);
+                    }
+                }
+            }
+            writeControl(group.resolve("cgroup.subtree_control"), "+memory +cpu");
+        }
+        return group;
+    }
+
+    private static boolean commandExists(String command) {
+        try {
+            return new ProcessBuilder(command, "--version").redirectErrorStream(true).start().waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void writeControl(Path file, String value) throws IOException {
+        Files.writeString(file, value); // One write() per value, that's what the kernel interface wants
+    }
+
+    // The backend's share of the heap, as the same share of physical memory
+    private static long memoryBytes(BackendBridge.SessionLimits limits) {
+        double perSession = limits.memoryPerSession();
+        if (PHYSICAL_MEMORY_BYTES > 0) {
+            perSession = PHYSICAL_MEMORY_BYTES * (perSession / Runtime.getRuntime().maxMemory());
+        }
+        return Math.max(MIN_MEMORY_BYTES, (long) perSession);
+    }
+
+    private static long readMemTotal() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/meminfo"))) {
+                if (line.startsWith("MemTotal:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) * 1024; // "MemTotal:  16314472 kB"
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not Linux, the heap-based figure it is
+        }
+        return -1;
+    }
+
+    // :cpu-per-session is a share of the whole machine, cpu.max wants microseconds per period
+    private static long cpuQuotaMicros(BackendBridge.SessionLimits limits) {
+        double cores = limits.cpuPerSession() * Runtime.getRuntime().availableProcessors();
+        return Math.max(1_000, (long) (cores * CPU_PERIOD_MICROS));
+    }
+
+    private static void run(List<String> command) throws IOException {
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes()).trim();
+            if (process.waitFor() != 0) {
+                throw new IOException(String.join(" ", command) + " failed: " + output);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted running " + command.get(0), e);
+        }
+    }
+
+    /** The limits of one session, resizable while it runs. */
+    public final class Limit {
+        private final String sessionName;
+        private final ProcessHandle process;
+        private final Path group; // CGROUP mode only
+        private volatile BackendBridge.SessionLimits current;
+        private volatile long memoryLimit = -1; // What was written, may be above what the limits ask for
+        private volatile boolean released = false;
+
+        private Limit(String sessionName, ProcessHandle process) {
+            this.sessionName = sessionName;
+            this.process = process;
+            this.group = mode == Mode.CGROUP
+                    ? parentGroup.resolve("repl-" + sessionName.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + process.pid())
+                    : null;
+        }
+
+        private void attach(BackendBridge.SessionLimits limits) throws IOException {
+            if (group != null) {
+                Files.createDirectories(group);
+                set(limits); // Limits first, so the process never runs unlimited in its new group
+                writeControl(group.resolve("cgroup.procs"), Long.toString(process.pid()));
+            } else {
+                set(limits);
+                run(List.of("renice", "-n", Integer.toString(FALLBACK_NICE), "-p", Long.toString(process.pid())));
+            }
+        }
+
+        /** Applies new limits to the running process. */
+        public void set(BackendBridge.SessionLimits limits) throws IOException {
+            if (released) {
+                return;
+            }
+            long bytes = memoryBytes(limits);
+            long used = memoryUsed();
+            if (used >= 0 && bytes < used + SHRINK_HEADROOM_BYTES) {
+                bytes = Math.max(bytes, Math.min(memoryLimit < 0 ? Long.MAX_VALUE : memoryLimit, used + SHRINK_HEADROOM_BYTES));
+            }
+            if (group != null) {
+                writeControl(group.resolve("memory.max"), Long.toString(bytes));
+                writeControl(group.resolve("cpu.max"), cpuQuotaMicros(limits) + " " + CPU_PERIOD_MICROS);
+            } else {
+                // RLIMIT_DATA covers heap and private mappings, RLIMIT_AS would also count shared libraries
+                run(List.of("prlimit", "--pid", Long.toString(process.pid()), "--data=" + bytes + ":" + bytes));
+            }
+            memoryLimit = bytes;
+            current = limits;
+        }
+
+        // memory.current of the group, or the data segment (what RLIMIT_DATA counts) without one. -1 if unknown.
+        private long memoryUsed() {
+            if (group != null) {
+                return readLong(group.resolve("memory.current"));
+            }
+            try {
+                for (String line : Files.readAllLines(Path.of("/proc", Long.toString(process.pid()), "status"))) {
+                    if (line.startsWith("VmData:")) {
+                        return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // Gone already
+            }
+            return -1;
+        }
+
+        /** Reads the counters, cheap enough for the sidebar's refresh rate. */
+        public Usage usage() {
+            BackendBridge.SessionLimits limits = current;
+            long memoryLimit = this.memoryLimit;
+            double cpuLimit = limits == null ? -1 : cpuQuotaMicros(limits) / (double) CPU_PERIOD_MICROS;
+            if (group != null) {
+                return new Usage(Mode.CGROUP, readLong(group.resolve("memory.current")), memoryLimit, cpuLimit,
+                        readKey(group.resolve("cpu.stat"), "usage_usec"),
+                        readKey(group.resolve("cpu.stat"), "nr_throttled"),
+                        readKey(group.resolve("cpu.stat"), "throttled_usec"),
+                        readKey(group.resolve("memory.events"), "oom_kill"));
+            }
+            // prlimit only: no group, so no throttling counters and no rate limit on the CPU
+            return new Usage(Mode.PRLIMIT, -1, memoryLimit, -1, -1, -1, -1, -1);
+        }
+
+        public String getSessionName() {
+            return sessionName;
+        }
+
+        /** Forgets the session. With cgroups the group is removed, which only works once it's empty. */
+        public void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            limits.remove(this);
+            if (group != null) {
+                try {
+                    Files.deleteIfExists(group);
+                } catch (IOException e) {
+                    System.err.println("Failed to remove " + group + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static long readLong(Path file) {
+        try {
+            String value = Files.readString(file).trim();
+            return value.equals("max") ? -1 : Long.parseLong(value);
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // "key value" lines, as in cpu.stat and memory.events
+    private static long readKey(Path file, String key) {
+        try {
+            for (String line : Files.readAllLines(file)) {
+                if (line.startsWith(key + " ")) {
+                    return Long.parseLong(line.substring(key.length() + 1).trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Group is gone
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,66 @@
+// SampleRing.java
+package org.example.gui_repl.ui;
+
+/**
+ * Fixed-size ring of double samples, oldest overwritten first. Backed by one primitive array so
+ * recording a sample never allocates, however long a session runs.
+ *
+ * Written by the sampler thread and read by the FX thread, so every method is synchronized;
+ * the FX side copies the samples out with {@link #copyTo(double[])} and draws from the copy.
+ */
+public class SampleRing {
+
+    private final double[] samples;
+    private int next = 0;  // Where the next sample goes
+    private int count = 0;
+
+    public SampleRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.samples = new double[capacity];
+    }
+
+    public synchronized void add(double sample) {
+        samples[next] = sample;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    public int capacity() {
+        return samples.length;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /** Most recent sample, or 0 if there is none yet. */
+    public synchronized double latest() {
+        return count == 0 ? 0.0 : samples[(next - 1 + samples.length) % samples.length];
+    }
+
+    public synchronized double max() {
+        double max = 0.0;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, samples[i]);
+        }
+        return max;
+    }
+
+    /** Copies the samples oldest first into dst (which must hold capacity() values), returns how many. */
+    public synchronized int copyTo(double[] dst) {
+        int start = (next - count + samples.length) % samples.length;
+        for (int i = 0; i < count; i++) {
+            dst[i] = samples[(start + i) % samples.length];
+        }
+        return count;
+    }
+
+    public synchronized void clear() {
+        next = 0;
+        count = 0;
+    }
+}
@@ -0,0 +1,222 @@
+// ScriptRunner.java
+package org.example.gui_repl.ui;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Batch mode: a whole script (a file, or a multi-line paste) goes to the interpreter in one go,
+ * see {@link ReplProcessController#runScript(String, String)}. This class turns the script into the
+ * lines an interactive interpreter expects, and the per-line results back into per-statement ones.
+ *
+ * Python's interactive mode is not the same as running a file: a blank line ends an indented block,
+ * and a compound statement needs one before the next top-level statement. So for Python, blank and
+ * comment-only lines are dropped (unless they're inside brackets or a triple-quoted string) and a
+ * blank line is added after every compound statement. Other interpreters get the lines as they are.
+ *
+ * Every line sent is answered by exactly one prompt, so each line is tracked as a command and a
+ * statement's output is whatever its lines got.
+ */
+public final class ScriptRunner {
+
+    private static final Set<String> COMPOUND = Set.of(
+            "if", "for", "while", "def", "class", "with", "try", "async", "match");
+    // Top-level lines that continue the compound statement before them
+    private static final Set<String> CLAUSES = Set.of("elif", "else", "except", "finally");
+    private static final Pattern ERROR = Pattern.compile("(?m)^(Traceback \\(most recent call last\\)|\\w*(Error|Exception)\\b)");
+    private static final int REPORTED_STATEMENTS = 3;
+
+    /** One statement of the script, starting at lineNumber (1-based), as the lines to send. */
+    public record Statement(int lineNumber, List<String> lines) { }
+
+    public record StatementResult(Statement statement, String output, long elapsedNanos) {
+        public boolean failed() {
+            return ERROR.matcher(output).find();
+        }
+    }
+
+    public record Result(String name, List<StatementResult> statements, int linesSent, long charsSent, long elapsedNanos) {
+        public List<StatementResult> failed() {
+            return statements.stream().filter(StatementResult::failed).toList();
+        }
+
+        /** Summary for the scrollback: throughput, failed statements, slowest statements. */
+        public String describe() {
+            double millis = elapsedNanos / 1_000_000.0;
+            StringBuilder text = new StringBuilder(String.format("Ran %s: %d statements (%d lines, %.1f KB) in %.1f ms, %.0f statements/s%n",
+                    name, statements.size(), linesSent, charsSent / 1024.0, millis, statements.size() * 1000.0 / Math.max(millis, 0.001)));
+            List<StatementResult> failed = failed();
+            if (!failed.isEmpty()) {
+                text.append("  ").append(failed.size()).append(" failed, first at line ")
+                        .append(failed.get(0).statement().lineNumber()).append('\n');
+            }
+            List<StatementResult> slowest = statements.stream()
+                    .sorted(Comparator.comparingLong(StatementResult::elapsedNanos).reversed())
+                    .limit(REPORTED_STATEMENTS)
+                    .toList();
+            if (statements.size() > REPORTED_STATEMENTS) {
+                text.append("  slowest:");
+                for (StatementResult result : slowest) {
+                    text.append(String.format(" line %d (%.1f ms)", result.statement().lineNumber(), result.elapsedNanos() / 1_000_000.0));
+                }
+                text.append('\n');
+            }
+            return text.toString();
+        }
+    }
+
+    private ScriptRunner() {
+    }
+
+    public static boolean isPython(ReplConfig config) {
+        return config.command().startsWith("python");
+    }
+
+    /** The script as statements, each with the lines to send for it. */
+    public static List<Statement> split(String script, ReplConfig config) {
+        String[] lines = script.split("\\R", -1);
+        int count = lines.length;
+        if (count > 0 && lines[count - 1].isEmpty()) {
+            count--; // The newline at the end of the file isn't a blank line
+        }
+        List<Statement> statements = new ArrayList<>();
+        if (!isPython(config)) {
+            for (int i = 0; i < count; i++) {
+                statements.add(new Statement(i + 1, List.of(lines[i])));
+            }
+            return statements;
+        }
+
+        PythonLineState state = new PythonLineState();
+        int start = 0;
+        List<String> current = null;
+        for (int i = 0; i < count; i++) {
+            String line = lines[i];
+            if (state.continues()) {
+                current.add(line); // Inside brackets, a string or after a backslash, send as it is
+                state.scan(line);
+                continue;
+            }
+            String stripped = line.strip();
+            if (stripped.isEmpty() || stripped.startsWith("#")) {
+                continue;
+            }
+            boolean topLevel = !Character.isWhitespace(line.charAt(0));
+            boolean continuesCurrent = current != null
+                    && (!topLevel || CLAUSES.contains(firstWord(stripped)) || current.get(current.size() - 1).startsWith("@"));
+            if (!continuesCurrent) {
+                if (current != null) {
+                    statements.add(finish(start, current));
+                }
+                start = i + 1;
+                current = new ArrayList<>();
+            }
+            current.add(line);
+            state.scan(line);
+        }
+        if (current != null) {
+            statements.add(finish(start, current));
+        }
+        return statements;
+    }
+
+    private static Statement finish(int lineNumber, List<String> lines) {
+        String first = lines.get(0).strip();
+        if (COMPOUND.contains(firstWord(first)) || first.startsWith("@")) {
+            lines.add(""); // Ends the block, the interpreter runs it on this line
+        }
+        return new Statement(lineNumber, List.copyOf(lines));
+    }
+
+    private static String firstWord(String stripped) {
+        int end = 0;
+        while (end < stripped.length() && Character.isJavaIdentifierPart(stripped.charAt(end))) {
+            end++;
+        }
+        return stripped.substring(0, end);
+    }
+
+    /** Groups per-line results (in the order the lines were sent) into per-statement ones. */
+    public static Result collect(String name, List<Statement> statements, List<CommandTracker.CommandResult> lineResults,
+                                 long elapsedNanos) {
+        List<StatementResult> results = new ArrayList<>(statements.size());
+        int next = 0;
+        long chars = 0;
+        long previousEnd = 0; // All lines were submitted together, so a round trip is the time since the start
+        for (Statement statement : statements) {
+            StringBuilder output = new StringBuilder();
+            long end = previousEnd;
+            for (String line : statement.lines()) {
+                CommandTracker.CommandResult lineResult = lineResults.get(next++);
+                output.append(lineResult.output());
+                end = lineResult.roundTripNanos();
+                chars += line.length() + 1;
+            }
+            results.add(new StatementResult(statement, output.toString(), Math.max(0, end - previousEnd)));
+            previousEnd = end;
+        }
+        return new Result(name, results, next, chars, elapsedNanos);
+    }
+
+    // Just enough of Python's tokenizer to know whether the next line continues this one
+    private static final class PythonLineState {
+        private int depth = 0;          // Open brackets
+        private String openString;      // """ or ''' while inside a triple-quoted string
+        private boolean backslash = false;
+
+        boolean continues() {
+            return depth > 0 || openString != null || backslash;
+        }
+
+        void scan(String line) {
+            backslash = false;
+            int i = 0;
+            while (i < line.length()) {
+                if (openString != null) {
+                    int end = line.indexOf(openString, i);
+                    if (end < 0) {
+                        return;
+                    }
+                    i = end + 3;
+                    openString = null;
+                    continue;
+                }
+                char c = line.charAt(i);
+                if (c == '#') {
+                    return;
+                } else if (c == '"' || c == '\'') {
+                    String triple = String.valueOf(c).repeat(3);
+                    if (line.startsWith(triple, i)) {
+                        openString = triple;
+                        i += 3;
+                        continue;
+                    }
+                    i = skipString(line, i + 1, c);
+                    continue;
+                } else if (c == '(' || c == '[' || c == '{') {
+                    depth++;
+                } else if (c == ')' || c == ']' || c == '}') {
+                    depth = Math.max(0, depth - 1);
+                } else if (c == '\\' && i == line.length() - 1) {
+                    backslash = true;
+                }
+                i++;
+            }
+        }
+
+        private static int skipString(String line, int from, char quote) {
+            for (int i = from; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    return i + 1;
+                }
+            }
+            return line.length();
+        }
+    }
+}
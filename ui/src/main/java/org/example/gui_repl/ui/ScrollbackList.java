@@ -0,0 +1,126 @@
+// ScrollbackList.java
+package org.example.gui_repl.ui;
+
+import javafx.collections.ObservableListBase;
+import org.example.gui_repl.common.Session;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Read-only ObservableList view over a {@link ScrollbackStore}, so a ListView can virtualize the
+ * output: only the rows on screen are ever turned into cells, and rows are fetched from the store
+ * (memory or disk) on demand. Each {@link #append(String)} fires a single change event.
+ *
+ * A restored tab can put the older part of its session journal in front of the store, see
+ * {@link #restore(Session, long)}. Those rows are read from the journal a page at a time, when
+ * they're scrolled to.
+ */
+public class ScrollbackList extends ObservableListBase<String> {
+
+    private static final int JOURNAL_PAGE_LINES = 256;
+
+    private final ScrollbackStore store;
+    private Session journal; // Rows [0, journalLines) come from here, null if there are none
+    private long journalLines = 0;
+    private long cachedPage = -1;
+    private String[] cachedLines;
+
+    public ScrollbackList(ScrollbackStore store) {
+        this.store = store;
+    }
+
+    public ScrollbackStore getStore() {
+        return store;
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < journalLines) {
+            return journalLine(index);
+        }
+        return store.line(index - journalLines);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, journalLines + store.lineCount());
+    }
+
+    /** Rows at the top that come from a restored session's journal. */
+    public long getJournalLines() {
+        return journalLines;
+    }
+
+    /** Puts the first lines of a session's journal in front of everything appended so far. */
+    public void restore(Session session, long lines) {
+        if (lines <= 0) {
+            return;
+        }
+        journal = session;
+        journalLines = lines;
+        cachedPage = -1;
+        beginChange();
+        nextAdd(0, (int) Math.min(Integer.MAX_VALUE, lines));
+        endChange();
+    }
+
+    // One page cached, scrolling through old output reads each page once
+    private String journalLine(int index) {
+        long page = index / JOURNAL_PAGE_LINES;
+        if (page != cachedPage) {
+            try {
+                cachedLines = journal.readLines(page * JOURNAL_PAGE_LINES, JOURNAL_PAGE_LINES);
+            } catch (IOException e) {
+                System.err.println("Failed to read the journal of " + journal.getName() + ": " + e.getMessage());
+                cachedLines = new String[0];
+            }
+            cachedPage = page;
+        }
+        int offset = (int) (index - page * JOURNAL_PAGE_LINES);
+        return offset < cachedLines.length ? cachedLines[offset] : "";
+    }
+
+    /** Called by the output pump on the FX thread with everything drained this pulse. */
+    public void append(String chunk) {
+        int sizeBefore = size();
+        boolean hadPartial = store.hasPartialLine();
+        String oldLast = hadPartial ? get(sizeBefore - 1) : null;
+
+        store.append(chunk);
+
+        int sizeAfter = size();
+        beginChange();
+        if (hadPartial) {
+            // The open last line got more text (and maybe a newline), it's now a different row
+            nextSet(sizeBefore - 1, oldLast);
+        }
+        if (sizeAfter > sizeBefore) {
+            nextAdd(sizeBefore, sizeAfter);
+        }
+        endChange();
+    }
+
+    public void clear() {
+        int sizeBefore = size();
+        store.clear();
+        journal = null;
+        journalLines = 0;
+        cachedLines = null;
+        cachedPage = -1;
+        if (sizeBefore > 0) {
+            beginChange();
+            // ListView doesn't look at the removed rows, no need to materialize them
+            nextRemove(0, Collections.nCopies(sizeBefore, ""));
+            endChange();
+        }
+    }
+
+    public void close() {
+        try {
+            store.close();
+        } catch (IOException e) {
+            System.err.println("Failed to delete scrollback files: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,251 @@
+// ScrollbackStore.java
+package org.example.gui_repl.ui;
+
+import org.example.gui_repl.common.TrigramIndex;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Line store behind a tab's output view. The newest lines live in a fixed-size ring in memory
+ * (the hot window), older lines are spilled to an append-only file on disk. The byte offset
+ * of every PAGE_LINES-th spilled line goes to a second index file, so finding an old line is
+ * one positional read for the offset plus one read for its page, and neither the lines nor the
+ * index have to stay on the heap. Memory per tab is flat no matter how much a session prints.
+ *
+ * That needs lines to be bounded too: output without newlines (\r progress bars, a one-line repr of
+ * a huge dict, binary) is wrapped every {@link #MAX_LINE_CHARS} chars, so the open last line is at
+ * most that long and the hot window at most DEFAULT_HOT_LINES of them.
+ *
+ * Not thread safe, the FX thread owns it (the pump appends, the list cells read).
+ */
+public class ScrollbackStore implements Closeable {
+
+    public static final int DEFAULT_HOT_LINES = 10_000;
+    static final int PAGE_LINES = 256;
+    // Where the search index wraps too, so its line numbers stay scrollback rows
+    static final int MAX_LINE_CHARS = TrigramIndex.MAX_LINE_CHARS;
+
+    private final Path spillFile;
+    private final Path indexFile;
+    private final FileChannel spillChannel;
+    private final FileChannel indexChannel;
+    private final OutputStream spillOut;
+
+    // Hot window, ring buffer of the newest completed lines
+    private final String[] hot;
+    private int hotStart = 0;
+    private int hotSize = 0;
+
+    private long spilledLines = 0;
+    private long spilledBytes = 0;
+    private boolean spillDirty = false;
+
+    // The last line, not terminated by a newline yet (prompts, progress bars, ...)
+    private final StringBuilder partial = new StringBuilder();
+
+    // One decoded cold page, scrolling through old output tends to hit the same page repeatedly
+    private long cachedPage = -1;
+    private String[] cachedPageLines;
+
+    private final ByteBuffer longBuffer = ByteBuffer.allocate(Long.BYTES);
+
+    public ScrollbackStore(String name) throws IOException {
+        this(name, DEFAULT_HOT_LINES);
+    }
+
+    public ScrollbackStore(String name, int hotLines) throws IOException {
+        if (hotLines <= 0) {
+            throw new IllegalArgumentException("hotLines must be positive: " + hotLines);
+        }
+        this.hot = new String[hotLines];
+        Path dir = Files.createDirectories(Path.of(System.getProperty("java.io.tmpdir"), "gui-repl-scrollback"));
+        this.spillFile = Files.createTempFile(dir, name + "-", ".lines");
+        this.indexFile = Files.createTempFile(dir, name + "-", ".idx");
+        this.spillChannel = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.indexChannel = FileChannel.open(indexFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.spillOut = new BufferedOutputStream(Channels.newOutputStream(spillChannel), 64 * 1024);
+    }
+
+    /** Completed lines plus the open partial line, if there is one. */
+    public long lineCount() {
+        return spilledLines + hotSize + (partial.length() > 0 ? 1 : 0);
+    }
+
+    public long getSpilledLines() {
+        return spilledLines;
+    }
+
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    public boolean hasPartialLine() {
+        return partial.length() > 0;
+    }
+
+    /**
+     * Appends a chunk of output. Returns the number of lines that now exist beyond the previous
+     * lineCount(); the caller can tell from hasPartialLine() before/after whether the previous
+     * last line was modified in place.
+     */
+    public long append(CharSequence chunk) {
+        long before = lineCount();
+        int start = 0;
+        for (int i = 0; i < chunk.length(); i++) {
+            if (chunk.charAt(i) == '\n') {
+                int end = i;
+                if (end > start && chunk.charAt(end - 1) == '\r') {
+                    end--;
+                }
+                partial.append(chunk, start, end);
+                completeLine(partial.toString());
+                partial.setLength(0);
+                start = i + 1;
+            } else if (partial.length() + (i - start) == MAX_LINE_CHARS) {
+                // Full line without a newline, wrapped before this char
+                partial.append(chunk, start, i);
+                completeLine(partial.toString());
+                partial.setLength(0);
+                start = i;
+            }
+        }
+        partial.append(chunk, start, chunk.length());
+        return lineCount() - before;
+    }
+
+    private void completeLine(String line) {
+        if (hotSize == hot.length) {
+            spill(hot[hotStart]);
+            hot[hotStart] = line;
+            hotStart = (hotStart + 1) % hot.length;
+        } else {
+            hot[(hotStart + hotSize) % hot.length] = line;
+            hotSize++;
+        }
+    }
+
+    private void spill(String line) {
+        try {
+            if (spilledLines % PAGE_LINES == 0) {
+                longBuffer.clear();
+                longBuffer.putLong(spilledBytes).flip();
+                indexChannel.write(longBuffer, (spilledLines / PAGE_LINES) * Long.BYTES);
+            }
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            spillOut.write(bytes);
+            spillOut.write('\n');
+            spilledBytes += bytes.length + 1;
+            spilledLines++;
+            spillDirty = true;
+            if (cachedPage == (spilledLines - 1) / PAGE_LINES) {
+                cachedPage = -1; // The cached copy of the page being filled is stale now
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill scrollback to " + spillFile, e);
+        }
+    }
+
+    public String line(long index) {
+        if (index < 0 || index >= lineCount()) {
+            throw new IndexOutOfBoundsException("Line " + index + " of " + lineCount());
+        }
+        if (index >= spilledLines + hotSize) {
+            return partial.toString();
+        }
+        if (index >= spilledLines) {
+            return hot[(int) ((hotStart + (index - spilledLines)) % hot.length)];
+        }
+        long page = index / PAGE_LINES;
+        if (page != cachedPage) {
+            cachedPageLines = readPage(page);
+            cachedPage = page;
+        }
+        return cachedPageLines[(int) (index % PAGE_LINES)];
+    }
+
+    private String[] readPage(long page) {
+        try {
+            if (spillDirty) {
+                spillOut.flush();
+                spillDirty = false;
+            }
+            long from = readIndex(page);
+            long lastPage = (spilledLines - 1) / PAGE_LINES;
+            long to = page < lastPage ? readIndex(page + 1) : spilledBytes;
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) (to - from));
+            while (buffer.hasRemaining()) {
+                if (spillChannel.read(buffer, from + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            String[] lines = new String[PAGE_LINES];
+            byte[] bytes = buffer.array();
+            int start = 0;
+            int n = 0;
+            for (int i = 0; i < bytes.length && n < PAGE_LINES; i++) {
+                if (bytes[i] == '\n') {
+                    lines[n++] = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+                    start = i + 1;
+                }
+            }
+            return lines;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read scrollback from " + spillFile, e);
+        }
+    }
+
+    private long readIndex(long page) throws IOException {
+        longBuffer.clear();
+        while (longBuffer.hasRemaining()) {
+            if (indexChannel.read(longBuffer, page * Long.BYTES + longBuffer.position()) < 0) {
+                throw new IOException("Scrollback index truncated at page " + page);
+            }
+        }
+        return longBuffer.flip().getLong();
+    }
+
+    /** Drops all output, in memory and on disk. */
+    public void clear() {
+        try {
+            spillOut.flush();
+            spillChannel.truncate(0);
+            indexChannel.truncate(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to clear scrollback " + spillFile, e);
+        }
+        Arrays.fill(hot, null);
+        hotStart = 0;
+        hotSize = 0;
+        spilledLines = 0;
+        spilledBytes = 0;
+        spillDirty = false;
+        partial.setLength(0);
+        cachedPage = -1;
+        cachedPageLines = null;
+    }
+
+    /** Closes and deletes the spill files. */
+    @Override
+    public void close() throws IOException {
+        try {
+            spillOut.close();
+            indexChannel.close();
+        } finally {
+            Files.deleteIfExists(spillFile);
+            Files.deleteIfExists(indexFile);
+        }
+    }
+}
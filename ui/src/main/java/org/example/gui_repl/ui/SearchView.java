@@ -0,0 +1,99 @@
+// SearchView.java
+package org.example.gui_repl.ui;
+
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Sidebar view for Find: searches the selected tab's output, or every tab's, on every keystroke.
+ * Each tab answers from its trigram index (see {@link ReplProcessController#find(String, int)}), so
+ * this stays interactive over millions of lines. Clicking a hit selects its tab and line. FX thread only.
+ */
+public class SearchView extends VBox {
+
+    public static final int MAX_HITS = 500;
+
+    /** A matching line: tab, index in that tab's scrollback, and the line itself. */
+    public record Hit(String tabName, long line, String text) { }
+
+    /** Where a clicked hit goes, ReplController selects the tab and scrolls to the line. */
+    public interface Navigator {
+        void reveal(Hit hit);
+    }
+
+    private final Supplier<Map<String, ReplProcessController>> tabs;
+    private final Supplier<String> selectedTab;
+    private final TextField queryField = new TextField();
+    private final CheckBox allTabs = new CheckBox("All tabs");
+    private final Label status = new Label("Type at least 3 characters.");
+    private final ListView<Hit> results = new ListView<>();
+
+    public SearchView(Supplier<Map<String, ReplProcessController>> tabs, Supplier<String> selectedTab, Navigator navigator) {
+        this.tabs = tabs;
+        this.selectedTab = selectedTab;
+        setSpacing(5);
+        queryField.setPromptText("Find in output");
+        queryField.textProperty().addListener((observable, previous, query) -> search());
+        allTabs.selectedProperty().addListener((observable, previous, selected) -> search());
+        status.getStyleClass().add("sidebar-metrics-line");
+        results.getStyleClass().add("sidebar-list");
+        results.setPlaceholder(new Label("No matches."));
+        results.setCellFactory(view -> new ListCell<>() {
+            @Override
+            protected void updateItem(Hit hit, boolean empty) {
+                super.updateItem(hit, empty);
+                setText(empty || hit == null ? null : hit.tabName() + ":" + (hit.line() + 1) + "  " + hit.text().strip());
+            }
+        });
+        results.setOnMouseClicked(event -> {
+            Hit hit = results.getSelectionModel().getSelectedItem();
+            if (hit != null) {
+                navigator.reveal(hit);
+            }
+        });
+        VBox.setVgrow(results, Priority.ALWAYS);
+        getChildren().setAll(queryField, allTabs, status, results);
+    }
+
+    public void focus() {
+        queryField.requestFocus();
+    }
+
+    private void search() {
+        String query = queryField.getText();
+        long start = System.nanoTime();
+        List<Hit> hits = new ArrayList<>();
+        boolean answered = false;
+        String selected = selectedTab.get();
+        for (Map.Entry<String, ReplProcessController> tab : tabs.get().entrySet()) {
+            if (hits.size() >= MAX_HITS) {
+                break;
+            }
+            if (!allTabs.isSelected() && !tab.getKey().equals(selected)) {
+                continue;
+            }
+            List<Hit> tabHits = tab.getValue().find(query, MAX_HITS - hits.size());
+            if (tabHits != null) {
+                answered = true;
+                hits.addAll(tabHits);
+            }
+        }
+        results.getItems().setAll(hits);
+        if (!answered) {
+            status.setText("Type at least 3 characters.");
+        } else {
+            status.setText(String.format("%s%d matches in %.1f ms", hits.size() >= MAX_HITS ? "First " : "",
+                    hits.size(), (System.nanoTime() - start) / 1_000_000.0));
+        }
+    }
+}
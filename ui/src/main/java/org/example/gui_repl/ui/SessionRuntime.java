@@ -0,0 +1,205 @@
+// SessionRuntime.java
+package org.example.gui_repl.ui;
+
+import org.example.gui_repl.common.HashedWheelTimer;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The one place every tab gets its threads from. Writers, timeouts and background work run on
+ * virtual threads, they park on queues and futures and cost next to nothing while they wait.
+ * Readers don't: a read on a process pipe is a plain blocking file read, which pins its carrier on
+ * JDK 21 and makes the scheduler add another one, so every blocked reader held a carrier anyway and
+ * past ~256 tabs the carrier pool was used up and no other virtual task ran any more. Readers get
+ * their own daemon platform threads instead (small stacks, one per interpreter) and the virtual
+ * threads stay free for the work that really parks. Command deadlines and periodic ticks go on
+ * the shared {@link HashedWheelTimer}, which the backend schedules on as well.
+ *
+ * Each tab opens a {@link Session} to submit its tasks through, which is what lets us count
+ * threads and queued work per session.
+ */
+public final class SessionRuntime {
+
+    public enum TaskKind { READER, WRITER, TIMEOUT, BACKGROUND }
+
+    private static final SessionRuntime INSTANCE = new SessionRuntime();
+
+    private static final long READER_STACK_BYTES = 256 * 1024; // The read loop is shallow
+
+    private final ExecutorService virtualThreads =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("repl-session-", 0).factory());
+    private final ExecutorService readerThreads = Executors.newCachedThreadPool(
+            Thread.ofPlatform().name("repl-reader-", 0).daemon().stackSize(READER_STACK_BYTES).factory());
+    private final HashedWheelTimer timer = HashedWheelTimer.shared();
+    private final Set<HashedWheelTimer.Timeout> periodicTasks = ConcurrentHashMap.newKeySet(); // Cancelled on shutdown, the wheel outlives us
+
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger sessionCounter = new AtomicInteger(0); // Before background, Session uses it
+    private final Session background = new Session("background");
+
+    private SessionRuntime() {
+    }
+
+    public static SessionRuntime getInstance() {
+        return INSTANCE;
+    }
+
+    public Session openSession(String name) {
+        Session session = new Session(name);
+        sessions.add(session);
+        return session;
+    }
+
+    /** Work that doesn't belong to a tab (sidebar refreshes and such). */
+    public Future<?> submitBackground(Runnable task) {
+        return background.submit(TaskKind.BACKGROUND, task);
+    }
+
+    /**
+     * Periodic work that doesn't belong to a tab. The timer wheel only fires the tick,
+     * the task itself runs on a virtual thread so it may block. Cancel the returned timeout to stop it.
+     */
+    public HashedWheelTimer.Timeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        HashedWheelTimer.Timeout timeout = timer.scheduleAtFixedRate(() -> submitBackground(task), initialDelay, period, unit);
+        periodicTasks.add(timeout);
+        return timeout;
+    }
+
+    public Collection<Session> getSessions() {
+        return Set.copyOf(sessions);
+    }
+
+    /** Tasks currently running across all sessions, i.e. live threads we own (readers and virtual ones). */
+    public int getActiveThreads() {
+        int total = background.getActiveTasks();
+        for (Session session : sessions) {
+            total += session.getActiveTasks();
+        }
+        return total;
+    }
+
+    /** Deadlines and ticks pending on the timer wheel, ours and the backend's. */
+    public long getPendingTimeouts() {
+        return timer.getPendingTimeouts();
+    }
+
+    public void shutdown() {
+        sessions.forEach(Session::close);
+        periodicTasks.forEach(HashedWheelTimer.Timeout::cancel);
+        periodicTasks.clear();
+        virtualThreads.shutdownNow();
+        readerThreads.shutdownNow(); // Readers end when their process does, the threads are daemons anyway
+        try {
+            if (!virtualThreads.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("Session runtime did not terminate in time, " + getActiveThreads() + " tasks still running.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Restore interrupt status
+            System.err.println("Interrupted while waiting for the session runtime to shut down.");
+        }
+    }
+
+    public final class Session {
+        private final int id = sessionCounter.incrementAndGet();
+        private volatile String name;
+        private final Map<TaskKind, AtomicInteger> activeTasks = new ConcurrentHashMap<>();
+        private final Map<String, Collection<?>> queues = new ConcurrentHashMap<>();
+
+        private Session(String name) {
+            this.name = name;
+            for (TaskKind kind : TaskKind.values()) {
+                activeTasks.put(kind, new AtomicInteger(0));
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Future<?> submit(TaskKind kind, Runnable task) {
+            AtomicInteger counter = activeTasks.get(kind);
+            counter.incrementAndGet();
+            ExecutorService executor = kind == TaskKind.READER ? readerThreads : virtualThreads;
+            return executor.submit(() -> {
+                try {
+                    task.run();
+                } finally {
+                    counter.decrementAndGet();
+                }
+            });
+        }
+
+        /**
+         * Fails the future with a TimeoutException if it isn't done after the given delay. The deadline
+         * is a slot on the timer wheel, dropped in O(1) as soon as the future completes, so finished
+         * commands cost nothing and thousands in flight cost no threads.
+         */
+        public <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, long delay, TimeUnit unit) {
+            AtomicInteger counter = activeTasks.get(TaskKind.TIMEOUT);
+            counter.incrementAndGet();
+            // Failing the future runs its callbacks, keep those off the wheel's thread
+            HashedWheelTimer.Timeout deadline = timer.schedule(() -> virtualThreads.execute(
+                    () -> future.completeExceptionally(new TimeoutException("No response after " + delay + " " + unit))),
+                    delay, unit);
+            future.whenComplete((result, error) -> {
+                deadline.cancel();
+                counter.decrementAndGet();
+            });
+            return future;
+        }
+
+        /** Makes a queue's depth show up in this session's stats. */
+        public void registerQueue(String queueName, Collection<?> queue) {
+            queues.put(queueName, queue);
+        }
+
+        public int getActiveTasks(TaskKind kind) {
+            return activeTasks.get(kind).get();
+        }
+
+        public int getActiveTasks() {
+            int total = 0;
+            for (AtomicInteger counter : activeTasks.values()) {
+                total += counter.get();
+            }
+            return total;
+        }
+
+        public int getQueuedItems() {
+            int total = 0;
+            for (Collection<?> queue : queues.values()) {
+                total += queue.size();
+            }
+            return total;
+        }
+
+        public String describe() {
+            StringBuilder description = new StringBuilder(name).append(" (#").append(id).append("): ");
+            for (TaskKind kind : TaskKind.values()) {
+                description.append(kind.name().toLowerCase()).append('=').append(getActiveTasks(kind)).append(' ');
+            }
+            queues.forEach((queueName, queue) -> description.append(queueName).append("Queue=").append(queue.size()).append(' '));
+            return description.toString().trim();
+        }
+
+        /** Stops counting this session; its tasks are expected to have been cancelled by the owner. */
+        public void close() {
+            sessions.remove(this);
+            queues.clear();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+// SessionStatsView.java
+package org.example.gui_repl.ui;
+
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sidebar rows for {@link ProcessSampler}: one row per session with its current values and a
+ * sparkline of the recent history. Rows are kept across refreshes and only added or removed when
+ * tabs come and go. FX thread only.
+ */
+public class SessionStatsView extends VBox {
+
+    public enum Mode { PROCESSES, THREADS }
+
+    private static final double SPARK_WIDTH = 120;
+    private static final double SPARK_HEIGHT = 24;
+
+    private final Mode mode;
+    private final Map<String, Row> rows = new HashMap<>();
+    private final Label emptyLabel = new Label("No running sessions.");
+
+    private final class Row extends VBox {
+        private final Label heading = new Label();
+        private final Label detail = new Label(); // Enforced limits and their counters, if any
+        private final Sparkline first;
+        private final Sparkline second;
+
+        Row(String session) {
+            heading.getStyleClass().add("sidebar-stats-heading");
+            if (mode == Mode.PROCESSES) {
+                first = new Sparkline(SPARK_WIDTH, SPARK_HEIGHT, Color.LIMEGREEN, 100.0); // CPU%, a full core is the floor
+                second = new Sparkline(SPARK_WIDTH, SPARK_HEIGHT, Color.DEEPSKYBLUE, 64.0); // RSS in MB
+            } else {
+                first = new Sparkline(SPARK_WIDTH, SPARK_HEIGHT, Color.ORANGE, 8.0); // Threads
+                second = null;
+            }
+            HBox sparklines = second == null ? new HBox(first) : new HBox(4, first, second);
+            detail.getStyleClass().add("sidebar-stats-heading");
+            detail.setWrapText(true);
+            getChildren().setAll(heading, sparklines, detail);
+            getStyleClass().add("sidebar-stats-row");
+            setUserData(session);
+        }
+
+        void update(ProcessSampler.SessionStats stats, String details) {
+            detail.setText(details);
+            detail.setVisible(details != null);
+            detail.setManaged(details != null);
+            if (mode == Mode.PROCESSES) {
+                heading.setText(String.format("%s: %.1f%% CPU, %.1f MB RSS",
+                        stats.getSession(), stats.getCpuPercent().latest(), stats.getRssMegabytes().latest()));
+                first.update(stats.getCpuPercent());
+                second.update(stats.getRssMegabytes());
+            } else {
+                heading.setText(String.format("%s: %d threads in %d processes",
+                        stats.getSession(), (int) stats.getThreads().latest(), stats.getProcessCount()));
+                first.update(stats.getThreads());
+            }
+        }
+    }
+
+    public SessionStatsView(Mode mode) {
+        this.mode = mode;
+        setSpacing(6);
+        emptyLabel.getStyleClass().add("sidebar-stats-heading");
+        getChildren().add(emptyLabel);
+    }
+
+    /** Redraws from the sampler's latest state, with an optional extra line per session. */
+    public void refresh(ProcessSampler sampler, Map<String, String> details) {
+        Set<String> seen = new HashSet<>();
+        for (ProcessSampler.SessionStats stats : sampler.getStats()) {
+            seen.add(stats.getSession());
+            Row row = rows.get(stats.getSession());
+            if (row == null) {
+                row = new Row(stats.getSession());
+                rows.put(stats.getSession(), row);
+                getChildren().add(row);
+            }
+            row.update(stats, details.get(stats.getSession()));
+        }
+        rows.entrySet().removeIf(entry -> {
+            if (seen.contains(entry.getKey())) {
+                return false;
+            }
+            getChildren().remove(entry.getValue()); // Tab was closed
+            return true;
+        });
+        emptyLabel.setVisible(rows.isEmpty());
+        emptyLabel.setManaged(rows.isEmpty());
+    }
+}
@@ -0,0 +1,216 @@
+// SocketInspector.java
+package org.example.gui_repl.ui;
+
+import javafx.application.Platform;
+import org.example.gui_repl.common.HashedWheelTimer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Live socket list for the sidebar, read straight from the kernel instead of forking netstat.
+ * Parses /proc/net/{tcp,tcp6,udp,udp6} and resolves each socket's inode against the fd links of
+ * every REPL session's process tree, so we can say which tab owns which socket.
+ *
+ * Polls on an interval and only reports what changed since the previous poll, so the sidebar
+ * adds and removes rows instead of rebuilding everything. Linux only; {@link #isSupported()}
+ * tells the caller whether there is anything to read.
+ */
+public class SocketInspector {
+
+    public static final long DEFAULT_INTERVAL_MS = 2_000;
+
+    private static final Path PROC = Path.of("/proc");
+    private static final String[][] TABLES = {
+            {"tcp", "net/tcp"}, {"tcp6", "net/tcp6"}, {"udp", "net/udp"}, {"udp6", "net/udp6"}
+    };
+    // Indexed by the hex state in /proc/net/tcp (include/net/tcp_states.h)
+    private static final String[] TCP_STATES = {
+            "UNKNOWN", "ESTABLISHED", "SYN_SENT", "SYN_RECV", "FIN_WAIT1", "FIN_WAIT2", "TIME_WAIT",
+            "CLOSE", "CLOSE_WAIT", "LAST_ACK", "LISTEN", "CLOSING", "NEW_SYN_RECV"
+    };
+
+    public record SocketEntry(String protocol, String localAddress, int localPort,
+                              String remoteAddress, int remotePort, String state,
+                              long inode, String session, long pid) {
+        @Override
+        public String toString() {
+            String owner = session == null ? "-" : session + " (pid " + pid + ")";
+            String remote = remotePort == 0 ? "" : " -> " + remoteAddress + ":" + remotePort;
+            return protocol + " " + localAddress + ":" + localPort + remote + " " + state + " " + owner;
+        }
+    }
+
+    public record Delta(List<SocketEntry> added, List<SocketEntry> removed) {
+    }
+
+    private record Owner(String session, long pid) {
+    }
+
+    private final Supplier<Map<String, ProcessHandle>> sessionProcesses;
+    private Set<SocketEntry> current = new HashSet<>(); // Guarded by this
+    private HashedWheelTimer.Timeout poller;
+
+    /** @param sessionProcesses tab name -> root process of that tab's interpreter */
+    public SocketInspector(Supplier<Map<String, ProcessHandle>> sessionProcesses) {
+        this.sessionProcesses = sessionProcesses;
+    }
+
+    public static boolean isSupported() {
+        return Files.isReadable(PROC.resolve("net/tcp"));
+    }
+
+    /**
+     * Starts polling. The first delta contains every socket; after that only changes are
+     * delivered, always on the FX thread, and only when something actually changed.
+     */
+    public synchronized void start(long intervalMillis, Consumer<Delta> onChange) {
+        stop();
+        current = new HashSet<>();
+        poller = SessionRuntime.getInstance().scheduleAtFixedRate(() -> {
+            Delta delta = poll();
+            if (!delta.added().isEmpty() || !delta.removed().isEmpty()) {
+                Platform.runLater(() -> onChange.accept(delta));
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (poller != null) {
+            poller.cancel();
+            poller = null;
+        }
+    }
+
+    // Reads every table and diffs against the previous poll
+    synchronized Delta poll() {
+        Map<Long, Owner> owners = resolveOwners();
+        Set<SocketEntry> next = new HashSet<>();
+        for (String[] table : TABLES) {
+            readTable(table[0], PROC.resolve(table[1]), owners, next);
+        }
+
+        List<SocketEntry> added = new ArrayList<>();
+        List<SocketEntry> removed = new ArrayList<>();
+        for (SocketEntry entry : next) {
+            if (!current.contains(entry)) {
+                added.add(entry);
+            }
+        }
+        for (SocketEntry entry : current) {
+            if (!next.contains(entry)) {
+                removed.add(entry);
+            }
+        }
+        current = next;
+        return new Delta(added, removed);
+    }
+
+    // socket inode -> which session/pid holds an fd to it
+    private Map<Long, Owner> resolveOwners() {
+        Map<Long, Owner> owners = new HashMap<>();
+        for (Map.Entry<String, ProcessHandle> session : sessionProcesses.get().entrySet()) {
+            ProcessHandle root = session.getValue();
+            collectSocketInodes(session.getKey(), root.pid(), owners);
+            root.descendants().forEach(child -> collectSocketInodes(session.getKey(), child.pid(), owners));
+        }
+        return owners;
+    }
+
+    private void collectSocketInodes(String session, long pid, Map<Long, Owner> owners) {
+        try (DirectoryStream<Path> fds = Files.newDirectoryStream(PROC.resolve(pid + "/fd"))) {
+            for (Path fd : fds) {
+                try {
+                    String target = Files.readSymbolicLink(fd).toString();
+                    if (target.startsWith("socket:[")) {
+                        long inode = Long.parseLong(target, 8, target.length() - 1, 10);
+                        owners.putIfAbsent(inode, new Owner(session, pid));
+                    }
+                } catch (IOException | NumberFormatException e) {
+                    // The fd was closed while we were looking, skip it
+                }
+            }
+        } catch (IOException e) {
+            // The process exited between listing and reading, nothing to report
+        }
+    }
+
+    private void readTable(String protocol, Path file, Map<Long, Owner> owners, Set<SocketEntry> into) {
+        if (!Files.isReadable(file)) {
+            return; // e.g. no IPv6 on this machine
+        }
+        boolean tcp = protocol.startsWith("tcp");
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            reader.readLine(); // Header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // sl local_address rem_address st tx_queue:rx_queue tr:tm->when retrnsmt uid timeout inode ...
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length < 10) {
+                    continue;
+                }
+                int localColon = fields[1].indexOf(':');
+                int remoteColon = fields[2].indexOf(':');
+                int state = Integer.parseInt(fields[3], 16);
+                long inode = Long.parseLong(fields[9]);
+                Owner owner = owners.get(inode);
+
+                SocketEntry entry = new SocketEntry(
+                        protocol,
+                        decodeAddress(fields[1].substring(0, localColon)),
+                        Integer.parseInt(fields[1].substring(localColon + 1), 16),
+                        decodeAddress(fields[2].substring(0, remoteColon)),
+                        Integer.parseInt(fields[2].substring(remoteColon + 1), 16),
+                        stateName(tcp, state),
+                        inode,
+                        owner == null ? null : owner.session(),
+                        owner == null ? -1 : owner.pid());
+                into.add(entry);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to read " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static String stateName(boolean tcp, int state) {
+        if (!tcp) {
+            return state == 1 ? "ESTABLISHED" : "UNCONN"; // UDP only has "connected" or not
+        }
+        return state < TCP_STATES.length ? TCP_STATES[state] : "UNKNOWN";
+    }
+
+    // The kernel prints the address as 32-bit words in host (little-endian) byte order
+    static String decodeAddress(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int word = 0; word < bytes.length / 4; word++) {
+            for (int i = 0; i < 4; i++) {
+                int at = (word * 4 + (3 - i)) * 2;
+                bytes[word * 4 + i] = (byte) Integer.parseInt(hex, at, at + 2, 16);
+            }
+        }
+        try {
+            return InetAddress.getByAddress(bytes).getHostAddress();
+        } catch (UnknownHostException e) {
+            return hex;
+        }
+    }
+
+    /** Sockets as of the last poll. */
+    public synchronized Set<SocketEntry> getCurrent() {
+        return Set.copyOf(current);
+    }
+}
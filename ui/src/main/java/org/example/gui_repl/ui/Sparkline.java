@@ -0,0 +1,57 @@
+// Sparkline.java
+package org.example.gui_repl.ui;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * Tiny line chart of a {@link SampleRing}, newest sample on the right. Scaled to the larger of
+ * the ring's max and a floor, so an idle session doesn't look like it's spiking.
+ * FX thread only; reuses its buffers between redraws.
+ */
+public class Sparkline extends Canvas {
+
+    private final Color color;
+    private final double floor;
+    private double[] samples = new double[0];
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+
+    public Sparkline(double width, double height, Color color, double floor) {
+        super(width, height);
+        this.color = color;
+        this.floor = floor;
+    }
+
+    public void update(SampleRing ring) {
+        if (samples.length != ring.capacity()) {
+            samples = new double[ring.capacity()];
+            xs = new double[ring.capacity()];
+            ys = new double[ring.capacity()];
+        }
+        int count = ring.copyTo(samples);
+
+        GraphicsContext gc = getGraphicsContext2D();
+        double width = getWidth();
+        double height = getHeight();
+        gc.clearRect(0, 0, width, height);
+        if (count < 2) {
+            return;
+        }
+
+        double max = floor;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, samples[i]);
+        }
+        double step = width / (samples.length - 1);
+        double offset = width - step * (count - 1); // Right-aligned until the ring fills up
+        for (int i = 0; i < count; i++) {
+            xs[i] = offset + i * step;
+            ys[i] = height - 1 - (samples[i] / max) * (height - 2);
+        }
+        gc.setStroke(color);
+        gc.setLineWidth(1);
+        gc.strokePolyline(xs, ys, count);
+    }
+}
@@ -0,0 +1,123 @@
+// StartupTimer.java
+package org.example.gui_repl.ui;
+
+import javafx.application.Platform;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wall-clock phases of a cold start, so we can tell where time to first prompt goes. Phases are
+ * marked as they happen (the first mark of a name wins) and printed relative to JVM start once the
+ * first interpreter shows its prompt:
+ *
+ *   Startup: main 92 ms, fx started 301 ms, window shown 388 ms, tabs created 401 ms, interpreter starting 402 ms, ...
+ *
+ * The JVM start time comes from the RuntimeMXBean, which is only asked when printing, so measuring
+ * doesn't slow down what it measures. Phases marked after the report (the backend, usually) get a
+ * line of their own.
+ *
+ * With -Dgui.repl.startup.exit.after=<phase> the app closes its windows once that phase is reached
+ * and the report is out, e.g. "first prompt". That's for scripted measurements and for the AppCDS
+ * training run of the jlink image (cdsArchive in ui/build.gradle.kts), which waits for "backend
+ * loaded" so the archive has the Clojure classes.
+ */
+public final class StartupTimer {
+
+    private static final long ANCHOR_MILLIS = System.currentTimeMillis();
+    private static final long ANCHOR_NANOS = System.nanoTime();
+    private static final String FIRST_PROMPT = "first prompt";
+    private static final String EXIT_AFTER = System.getProperty("gui.repl.startup.exit.after");
+
+    private static final Map<String, Long> phases = new LinkedHashMap<>(); // Epoch millis, guarded by the class
+    private static final List<Runnable> firstPromptListeners = new ArrayList<>();
+    private static boolean reported = false;
+
+    private StartupTimer() {
+    }
+
+    /** Notes that a phase was reached, any thread. Only the first mark of each name counts. */
+    public static void mark(String phase) {
+        long now = ANCHOR_MILLIS + (System.nanoTime() - ANCHOR_NANOS) / 1_000_000;
+        boolean late;
+        synchronized (StartupTimer.class) {
+            if (phases.putIfAbsent(phase, now) != null) {
+                return;
+            }
+            late = reported;
+        }
+        if (late) {
+            System.out.println("Startup: " + phase + " " + (now - jvmStartMillis()) + " ms");
+        }
+        exitIfDone();
+    }
+
+    /**
+     * Runs task once the first prompt of the app showed up, right away if it already has. For work
+     * that would only compete with getting the first tab ready, like warming the interpreter pool.
+     */
+    public static void whenFirstPrompt(Runnable task) {
+        synchronized (StartupTimer.class) {
+            if (!reported) {
+                firstPromptListeners.add(task);
+                return;
+            }
+        }
+        task.run();
+    }
+
+    /** Reader thread of whichever tab prompts first. Prints the report the first time. */
+    public static void firstPrompt() {
+        mark(FIRST_PROMPT);
+        List<Runnable> listeners;
+        String report;
+        synchronized (StartupTimer.class) {
+            if (reported) {
+                return;
+            }
+            reported = true;
+            listeners = List.copyOf(firstPromptListeners);
+            firstPromptListeners.clear();
+            report = describe();
+        }
+        System.out.println(report);
+        listeners.forEach(Runnable::run);
+        exitIfDone();
+    }
+
+    // Never before the report, whatever the phase, so a training run always gets through the first prompt
+    private static void exitIfDone() {
+        boolean done;
+        synchronized (StartupTimer.class) {
+            done = reported && EXIT_AFTER != null && phases.containsKey(EXIT_AFTER);
+        }
+        if (done) {
+            // Closing the windows runs the usual shutdown (ReplApplication's onHidden), then the FX runtime exits
+            Platform.runLater(() -> new ArrayList<>(Window.getWindows()).forEach(window -> {
+                if (window instanceof Stage stage) {
+                    stage.close();
+                }
+            }));
+        }
+    }
+
+    private static String describe() {
+        long jvmStart = jvmStartMillis();
+        StringBuilder text = new StringBuilder("Startup:");
+        String separator = " ";
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            text.append(separator).append(phase.getKey()).append(' ').append(phase.getValue() - jvmStart).append(" ms");
+            separator = ", ";
+        }
+        return text.toString();
+    }
+
+    private static long jvmStartMillis() {
+        return ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+}